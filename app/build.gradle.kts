@@ -13,6 +13,17 @@ android {
         versionCode = 1
         versionName = "1.0"
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Room writes one JSON schema per version here; MigrationTest validates against them.
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
+    }
+
+    sourceSets {
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
     }
 
     buildTypes {
@@ -24,14 +35,19 @@ android {
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
+        isCoreLibraryDesugaringEnabled = true
     }
 }
 
 dependencies {
+    // java.time on API 24/25
+    coreLibraryDesugaring("com.android.tools:desugar_jdk_libs:2.0.4")
     // Room
     implementation("androidx.room:room-runtime:2.6.1")
     implementation("androidx.work:work-runtime:2.9.0")
+    implementation("androidx.room:room-paging:2.6.1")
     annotationProcessor("androidx.room:room-compiler:2.6.1")
+    implementation("androidx.paging:paging-runtime:3.2.1")
     // AndroidX UI
     implementation(libs.appcompat)
     implementation(libs.material)
@@ -44,4 +60,5 @@ dependencies {
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation("androidx.room:room-testing:2.6.1")
 }
\ No newline at end of file
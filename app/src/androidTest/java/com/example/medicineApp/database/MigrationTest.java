@@ -0,0 +1,98 @@
+package com.example.medicineApp.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.LocalDate;
+
+/**
+ * Runs every hand-written migration from a seeded version 1 database and validates the
+ * result against the exported version 5 schema. No 1.json was ever exported, so the v1
+ * tables are created here with the DDL Room generated for them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDB.class);
+
+    @Before
+    public void seedVersion1() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ctx.deleteDatabase(TEST_DB);
+
+        SupportSQLiteOpenHelper.Configuration config = SupportSQLiteOpenHelper.Configuration.builder(ctx)
+                .name(TEST_DB)
+                .callback(new SupportSQLiteOpenHelper.Callback(1) {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        db.execSQL("CREATE TABLE IF NOT EXISTS `time_term` (" +
+                                "`id` INTEGER NOT NULL, `name` TEXT NOT NULL, `sort_order` INTEGER NOT NULL, " +
+                                "PRIMARY KEY(`id`))");
+                        db.execSQL("CREATE TABLE IF NOT EXISTS `prescription_drug` (" +
+                                "`uid` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                                "`short_name` TEXT, `description` TEXT, " +
+                                "`start_date` TEXT, `end_date` TEXT, " +
+                                "`time_term_id` INTEGER NOT NULL, " +
+                                "`doctor_name` TEXT, `doctor_location` TEXT, " +
+                                "`is_active` INTEGER NOT NULL, `has_received_today` INTEGER NOT NULL, " +
+                                "`last_date_received` TEXT, " +
+                                "FOREIGN KEY(`time_term_id`) REFERENCES `time_term`(`id`) ON UPDATE NO ACTION ON DELETE RESTRICT )");
+                        db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drug_time_term_id` ON `prescription_drug` (`time_term_id`)");
+
+                        db.execSQL("INSERT INTO time_term (id, name, sort_order) VALUES (7, 'BEFORE_DINNER', 7)");
+                        db.execSQL("INSERT INTO prescription_drug (uid, short_name, start_date, end_date, time_term_id, " +
+                                "is_active, has_received_today, last_date_received) " +
+                                "VALUES (1, 'Amoxicillin', '2025-01-01', '2025-12-31', 7, 1, 1, '2025-03-15')");
+                    }
+
+                    @Override
+                    public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {}
+                })
+                .build();
+
+        SupportSQLiteOpenHelper open = new FrameworkSQLiteOpenHelperFactory().create(config);
+        open.getWritableDatabase();
+        open.close();
+    }
+
+    @Test
+    public void migrate1To5() {
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 5, true,
+                AppDB.MIGRATION_1_2, AppDB.MIGRATION_2_3, AppDB.MIGRATION_3_4, AppDB.MIGRATION_4_5);
+
+        try (Cursor c = db.query("SELECT start_day, end_day, last_received_day, updated_at FROM prescription_drug WHERE uid = 1")) {
+            assertTrue(c.moveToFirst());
+            assertEquals(LocalDate.of(2025, 1, 1).toEpochDay(), c.getLong(0));
+            assertEquals(LocalDate.of(2025, 12, 31).toEpochDay(), c.getLong(1));
+            assertEquals(LocalDate.of(2025, 3, 15).toEpochDay(), c.getLong(2));
+            assertTrue(c.getLong(3) > 0);
+        }
+
+        // The 3 -> 4 triggers are live: a delete leaves a tombstone.
+        db.execSQL("DELETE FROM prescription_drug WHERE uid = 1");
+        try (Cursor c = db.query("SELECT COUNT(*) FROM prescription_tombstone WHERE uid = 1")) {
+            assertTrue(c.moveToFirst());
+            assertEquals(1, c.getInt(0));
+        }
+    }
+}
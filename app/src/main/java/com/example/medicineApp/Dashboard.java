@@ -1,8 +1,12 @@
 package com.example.medicineApp;
 
+import android.Manifest;
 import android.content.ContentValues;
+import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
@@ -12,31 +16,41 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.work.Data;
 import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 
 import com.example.medicineApp.database.AppDB;
-import com.example.medicineApp.database.model.PrescriptionModel;
 import com.example.medicineApp.ui.PrescriptionViewModel;
 import com.example.medicineApp.utilities.PrescriptionCreate;
 import com.example.medicineApp.utilities.PrescriptionExport;
-import com.example.medicineApp.utilities.PrescriptionAdapter;
+import com.example.medicineApp.utilities.PrescriptionPagingAdapter;
 import com.example.medicineApp.utilities.PrescriptionProvider;
+import com.example.medicineApp.workers.DailyRecomputeCoordinator;
+import com.example.medicineApp.workers.ExportWorker;
+import com.example.medicineApp.workers.ImportWorker;
 import com.example.medicineApp.workers.PrescriptionPeriodicWorker;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.common.util.concurrent.ListenableFuture;
 
-import java.text.SimpleDateFormat;
-import java.util.Collections;
-import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 
@@ -44,6 +58,9 @@ public class Dashboard extends AppCompatActivity {
 
     private PrescriptionViewModel viewModel;
 
+    private final ActivityResultLauncher<String[]> pickImport =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::startImport);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -52,16 +69,19 @@ public class Dashboard extends AppCompatActivity {
         setupViewModel();
         setupRecyclerView();
         setupButtons();
+        setupImportResults();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+        DailyRecomputeCoordinator.get(this).onForeground();
+    }
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            AppDB.get(this).prescriptionDao().dailyRecompute(today);
-        });
+    @Override
+    protected void onPause() {
+        super.onPause();
+        DailyRecomputeCoordinator.get(this).onBackground();
     }
 
 
@@ -77,12 +97,12 @@ public class Dashboard extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        RecyclerView recycler       = findViewById(R.id.recycler);
-        PrescriptionAdapter adapter = new PrescriptionAdapter();
+        RecyclerView recycler             = findViewById(R.id.recycler);
+        PrescriptionPagingAdapter adapter = new PrescriptionPagingAdapter();
 
         recycler.setLayoutManager(new LinearLayoutManager(this));
         recycler.setAdapter(adapter);
-        viewModel.activePrescriptions.observe(this, adapter::submitList);
+        viewModel.activePrescriptions.observe(this, page -> adapter.submitData(getLifecycle(), page));
     }
 
     private void setupButtons() {
@@ -93,15 +113,18 @@ public class Dashboard extends AppCompatActivity {
         fabAdd.setOnClickListener(v -> PrescriptionCreate.show(this, viewModel));
         fabDelete.setOnClickListener(v -> showDeleteDialog());
         findViewById(R.id.btn_export).setOnClickListener(v -> showExportDialog());
+        // CSV or JSON Lines, optionally gzipped; the importer sniffs the content.
+        findViewById(R.id.btn_import).setOnClickListener(v -> pickImport.launch(new String[]{"*/*"}));
 
-        btnTestProvider.setOnClickListener(v -> {
+        // The provider runs its DAO calls on the caller's thread, so keep them off the UI thread.
+        btnTestProvider.setOnClickListener(v -> AppDB.io(AppDB.Lane.WRITE).execute(() -> {
             try {
                 testContentProviderCRUD();
             } catch (Exception e) {
                 logError(e);
                 toast("ERR: " + e.getMessage());
             }
-        });
+        }));
     }
 
 
@@ -145,30 +168,107 @@ public class Dashboard extends AppCompatActivity {
     private void showExportDialog() {
         new AlertDialog.Builder(this)
                 .setTitle("PrescriptionExport active medications")
-                .setItems(new CharSequence[]{"PrescriptionExport TXT", "PrescriptionExport HTML"}, (d, which) -> {
-                    try {
-                        List<PrescriptionModel> list =
-                                viewModel.activePrescriptions.getValue() == null
-                                        ? Collections.emptyList()
-                                        : viewModel.activePrescriptions.getValue();
-
-                        if (list.isEmpty()) {
-                            toast("Nothing to export");
-                            return;
-                        }
-
-                        if (which == 0) PrescriptionExport.exportTxt(this, list);
-                        else PrescriptionExport.exportHtml(this, list);
-
-                        toast("Saved to Downloads");
-                    } catch (Exception e) {
-                        toast("PrescriptionExport failed: " + e.getMessage());
+                .setItems(new CharSequence[]{
+                        "PrescriptionExport TXT",
+                        "PrescriptionExport HTML",
+                        "PrescriptionExport CSV",
+                        "PrescriptionExport JSON Lines",
+                        "PrescriptionExport CSV (gzip)",
+                        "PrescriptionExport JSON Lines (gzip)",
+                        "Changes since last export (CSV)",
+                        "Changes since last export (JSON Lines, gzip)"
+                }, (d, which) -> {
+                    switch (which) {
+                        case 0: startExport(PrescriptionExport.Format.TXT, false, false); break;
+                        case 1: startExport(PrescriptionExport.Format.HTML, false, false); break;
+                        case 2: startExport(PrescriptionExport.Format.CSV, false, false); break;
+                        case 3: startExport(PrescriptionExport.Format.JSONL, false, false); break;
+                        case 4: startExport(PrescriptionExport.Format.CSV, true, false); break;
+                        case 5: startExport(PrescriptionExport.Format.JSONL, true, false); break;
+                        case 6: startExport(PrescriptionExport.Format.CSV, false, true); break;
+                        case 7: startExport(PrescriptionExport.Format.JSONL, true, true); break;
                     }
                 })
                 .setNegativeButton(android.R.string.cancel, null)
                 .show();
     }
 
+    /** Exports run in {@link ExportWorker}; progress and the result land in a notification. */
+    private void startExport(PrescriptionExport.Format format, boolean gzip, boolean delta) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU &&
+                ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
+        }
+
+        OneTimeWorkRequest request = ExportWorker.request(format, gzip, delta);
+        WorkManager workManager = WorkManager.getInstance(this);
+        workManager.enqueueUniqueWork(ExportWorker.UNIQUE_NAME, ExistingWorkPolicy.REPLACE, request);
+
+        workManager.getWorkInfoByIdLiveData(request.getId()).observe(this, info -> {
+            if (info == null) return;
+            if (info.getState() == WorkInfo.State.SUCCEEDED) {
+                boolean empty = info.getOutputData().getInt(ExportWorker.KEY_ROWS, 0) == 0;
+                toast(empty ? (delta ? "No changes since last export" : "Nothing to export") : "Saved to Downloads");
+            } else if (info.getState() == WorkInfo.State.FAILED) {
+                toast("PrescriptionExport failed: " + info.getOutputData().getString(ExportWorker.KEY_ERROR));
+            }
+        });
+    }
+
+    private void startImport(Uri source) {
+        if (source == null) return;
+
+        WorkManager workManager = WorkManager.getInstance(this);
+        ListenableFuture<List<WorkInfo>> current = workManager.getWorkInfosForUniqueWork(ImportWorker.UNIQUE_NAME);
+        current.addListener(() -> {
+            if (isImportRunning(current)) {
+                toast("An import is already running");
+                return;
+            }
+
+            // Keeps read access for the worker even if this activity goes away mid-import. Only
+            // taken once the request will run, since ImportWorker is what releases it.
+            getContentResolver().takePersistableUriPermission(source, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            workManager.enqueueUniqueWork(ImportWorker.UNIQUE_NAME, ExistingWorkPolicy.KEEP, ImportWorker.request(source));
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private static boolean isImportRunning(ListenableFuture<List<WorkInfo>> current) {
+        try {
+            for (WorkInfo info : current.get()) {
+                if (!info.getState().isFinished()) return true;
+            }
+            return false;
+        } catch (ExecutionException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Import results are watched by unique name, so a run started before a configuration
+     * change still reports. Runs already finished when the activity starts stay silent.
+     */
+    private void setupImportResults() {
+        Set<UUID> reported = new HashSet<>();
+        boolean[] seeded = {false};
+
+        WorkManager.getInstance(this).getWorkInfosForUniqueWorkLiveData(ImportWorker.UNIQUE_NAME).observe(this, infos -> {
+            for (WorkInfo info : infos) {
+                if (!info.getState().isFinished() || !reported.add(info.getId()) || !seeded[0]) continue;
+
+                if (info.getState() == WorkInfo.State.SUCCEEDED) {
+                    Data out = info.getOutputData();
+                    int rejected = out.getInt(ImportWorker.KEY_REJECTED, 0);
+                    toast("Imported " + out.getInt(ImportWorker.KEY_IMPORTED, 0) +
+                            (rejected > 0 ? ", rejected " + rejected + " (report in Downloads)" : ""));
+                } else if (info.getState() == WorkInfo.State.FAILED) {
+                    toast("Import failed: " + info.getOutputData().getString(ImportWorker.KEY_ERROR));
+                }
+            }
+            seeded[0] = true;
+        });
+    }
+
     /** Insert, query, update, and delete a test prescription content provider G */
     private void testContentProviderCRUD() {
         ContentValues values = new ContentValues();
@@ -214,7 +314,7 @@ public class Dashboard extends AppCompatActivity {
     }
 
     private void toast(String msg) {
-        Toast.makeText(this, msg, Toast.LENGTH_SHORT).show();
+        runOnUiThread(() -> Toast.makeText(this, msg, Toast.LENGTH_SHORT).show());
     }
 
     private void logError(Throwable t) {
@@ -7,13 +7,18 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.example.medicineApp.database.converters.EpochDayConverter;
+import com.example.medicineApp.database.dao.IntakeEventDao;
 import com.example.medicineApp.database.dao.PrescriptionDao;
 import com.example.medicineApp.database.dao.TimeTermDao;
 import com.example.medicineApp.database.enums.TimeTermEnum;
+import com.example.medicineApp.database.model.IntakeEventModel;
 import com.example.medicineApp.database.model.PrescriptionModel;
 import com.example.medicineApp.database.model.TimeTermModel;
+import com.example.medicineApp.database.model.TombstoneModel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,18 +27,141 @@ import java.util.concurrent.Executors;
 
 
 @Database(
-        entities = {PrescriptionModel.class, TimeTermModel.class},
-        version = 1
+        entities = {PrescriptionModel.class, TimeTermModel.class, TombstoneModel.class, IntakeEventModel.class},
+        version = 5
 )
-@TypeConverters()
+@TypeConverters(EpochDayConverter.class)
 public abstract class AppDB extends RoomDatabase {
 
     public abstract PrescriptionDao prescriptionDao();
     public abstract TimeTermDao timeTermDao();
+    public abstract IntakeEventDao intakeEventDao();
 
     private static volatile AppDB INSTANCE;
 
-    private static final ExecutorService DB_EXECUTOR = Executors.newSingleThreadExecutor();
+    /** Which executor a piece of DB work belongs on, see {@link #io(Lane)}. */
+    public enum Lane { READ, WRITE }
+
+    private static final int READERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // WAL lets readers run alongside the single writer, so reads never queue behind writes.
+    // No transaction executor is set, so Room serializes its transactions (paging loads run in
+    // withTransaction) on top of READ_EXECUTOR; they never wait behind app writes on WRITE_EXECUTOR.
+    private static final ExecutorService READ_EXECUTOR  = Executors.newFixedThreadPool(READERS);
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /** ISO date TEXT columns -> INTEGER epoch-days, indexed on (start_day, end_day). */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `prescription_drug_new` (" +
+                    "`uid` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`short_name` TEXT, " +
+                    "`description` TEXT, " +
+                    "`start_day` INTEGER, " +
+                    "`end_day` INTEGER, " +
+                    "`time_term_id` INTEGER NOT NULL, " +
+                    "`doctor_name` TEXT, " +
+                    "`doctor_location` TEXT, " +
+                    "`is_active` INTEGER NOT NULL, " +
+                    "`has_received_today` INTEGER NOT NULL, " +
+                    "`last_received_day` INTEGER, " +
+                    "FOREIGN KEY(`time_term_id`) REFERENCES `time_term`(`id`) ON UPDATE NO ACTION ON DELETE RESTRICT )");
+
+            db.execSQL("INSERT INTO prescription_drug_new (" +
+                    "uid, short_name, description, start_day, end_day, time_term_id, " +
+                    "doctor_name, doctor_location, is_active, has_received_today, last_received_day) " +
+                    "SELECT uid, short_name, description, " +
+                    "CAST(julianday(start_date) - 2440587.5 AS INTEGER), " +
+                    "CAST(julianday(end_date) - 2440587.5 AS INTEGER), " +
+                    "time_term_id, doctor_name, doctor_location, is_active, has_received_today, " +
+                    "CAST(julianday(last_date_received) - 2440587.5 AS INTEGER) " +
+                    "FROM prescription_drug");
+
+            db.execSQL("DROP TABLE prescription_drug");
+            db.execSQL("ALTER TABLE prescription_drug_new RENAME TO prescription_drug");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drug_time_term_id` ON `prescription_drug` (`time_term_id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drug_start_day_end_day` ON `prescription_drug` (`start_day`, `end_day`)");
+        }
+    };
+
+    /** Indexes backing the incremental daily recompute. */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drug_is_active_end_day` ON `prescription_drug` (`is_active`, `end_day`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drug_has_received_today` ON `prescription_drug` (`has_received_today`)");
+        }
+    };
+
+    /** SQLite's clock in epoch millis; updated_at, deleted_at and export watermarks all use it. */
+    public static final String NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    /** updated_at column, tombstone table and the triggers that maintain both. */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE prescription_drug ADD COLUMN `updated_at` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE prescription_drug SET updated_at = " + NOW_MILLIS);
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drug_updated_at` ON `prescription_drug` (`updated_at`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `prescription_tombstone` (" +
+                    "`uid` INTEGER NOT NULL, " +
+                    "`deleted_at` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`uid`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_tombstone_deleted_at` ON `prescription_tombstone` (`deleted_at`)");
+
+            createChangeTriggers(db);
+        }
+    };
+
+    /** Append-only intake journal. */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `intake_event` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`prescription_uid` INTEGER NOT NULL, " +
+                    "`day` INTEGER NOT NULL, " +
+                    "`taken_at` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_intake_event_prescription_uid_day` ON `intake_event` (`prescription_uid`, `day`)");
+        }
+    };
+
+    /**
+     * Every write path (DAO, provider, raw UPDATEs, imports) goes through these, so no caller
+     * has to remember to stamp updated_at. The update trigger only fires when a column really
+     * changed, and also repairs an updated_at that a stale entity tried to write back.
+     */
+    static void createChangeTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `prescription_drug_stamp_insert` " +
+                "AFTER INSERT ON prescription_drug BEGIN " +
+                "UPDATE prescription_drug SET updated_at = " + NOW_MILLIS + " WHERE uid = NEW.uid; " +
+                "DELETE FROM prescription_tombstone WHERE uid = NEW.uid; " +
+                "END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `prescription_drug_stamp_update` " +
+                "AFTER UPDATE ON prescription_drug " +
+                "WHEN NEW.updated_at <= OLD.updated_at AND (" +
+                "NEW.updated_at <> OLD.updated_at OR " +
+                "NEW.short_name IS NOT OLD.short_name OR " +
+                "NEW.description IS NOT OLD.description OR " +
+                "NEW.start_day IS NOT OLD.start_day OR " +
+                "NEW.end_day IS NOT OLD.end_day OR " +
+                "NEW.time_term_id IS NOT OLD.time_term_id OR " +
+                "NEW.doctor_name IS NOT OLD.doctor_name OR " +
+                "NEW.doctor_location IS NOT OLD.doctor_location OR " +
+                "NEW.is_active IS NOT OLD.is_active OR " +
+                "NEW.has_received_today IS NOT OLD.has_received_today OR " +
+                "NEW.last_received_day IS NOT OLD.last_received_day) BEGIN " +
+                "UPDATE prescription_drug SET updated_at = " + NOW_MILLIS + " WHERE uid = NEW.uid; " +
+                "END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `prescription_drug_tombstone` " +
+                "AFTER DELETE ON prescription_drug BEGIN " +
+                "INSERT OR REPLACE INTO prescription_tombstone (uid, deleted_at) VALUES (OLD.uid, " + NOW_MILLIS + "); " +
+                "END");
+    }
 
     public static AppDB get(Context context) {
         if (INSTANCE == null) {
@@ -44,12 +172,16 @@ public abstract class AppDB extends RoomDatabase {
                                     AppDB.class,
                                     "rx.db"
                             )
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .setQueryExecutor(READ_EXECUTOR)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
                             .fallbackToDestructiveMigration()
                             .addCallback(new Callback() {
                                 @Override
                                 public void onCreate(@NonNull SupportSQLiteDatabase db) {
                                     super.onCreate(db);
-                                    DB_EXECUTOR.execute(() -> {
+                                    createChangeTriggers(db);
+                                    WRITE_EXECUTOR.execute(() -> {
                                         AppDB appDb = get(context.getApplicationContext());
                                         appDb.timeTermDao().insertAll(defaultTimeTerms());
                                     });
@@ -58,7 +190,9 @@ public abstract class AppDB extends RoomDatabase {
                                 @Override
                                 public void onOpen(@NonNull SupportSQLiteDatabase db) {
                                     super.onOpen(db);
-                                    DB_EXECUTOR.execute(() -> {
+                                    // A destructive fallback recreates the tables without onCreate.
+                                    createChangeTriggers(db);
+                                    WRITE_EXECUTOR.execute(() -> {
                                         AppDB appDb = get(context.getApplicationContext());
                                         if (appDb.timeTermDao().countSync() == 0) {
                                             appDb.timeTermDao().insertAll(defaultTimeTerms());
@@ -73,8 +207,9 @@ public abstract class AppDB extends RoomDatabase {
         return INSTANCE;
     }
 
-    public static ExecutorService io() {
-        return DB_EXECUTOR;
+    /** Reads go to the bounded reader pool, writes to the single serialized writer. */
+    public static ExecutorService io(Lane lane) {
+        return lane == Lane.READ ? READ_EXECUTOR : WRITE_EXECUTOR;
     }
 
     public static List<TimeTermModel> defaultTimeTerms() {
@@ -0,0 +1,21 @@
+package com.example.medicineApp.database.converters;
+
+import androidx.room.TypeConverter;
+
+import java.time.LocalDate;
+
+/** Stores {@link LocalDate} values as INTEGER epoch-days so date ranges can be index scanned. */
+public final class EpochDayConverter {
+
+    private EpochDayConverter() {}
+
+    @TypeConverter
+    public static Long fromDate(LocalDate date) {
+        return date == null ? null : date.toEpochDay();
+    }
+
+    @TypeConverter
+    public static LocalDate toDate(Long epochDay) {
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
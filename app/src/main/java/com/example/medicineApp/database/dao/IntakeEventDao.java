@@ -0,0 +1,19 @@
+package com.example.medicineApp.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.example.medicineApp.database.model.IntakeEventModel;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Dao
+public interface IntakeEventDao {
+    @Insert
+    void insertAll(List<IntakeEventModel> events);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM intake_event WHERE prescription_uid = :uid AND day = :day)")
+    boolean existsOn(int uid, LocalDate day);
+}
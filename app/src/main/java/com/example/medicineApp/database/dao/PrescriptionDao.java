@@ -3,39 +3,110 @@ package com.example.medicineApp.database.dao;
 import android.content.ContentValues;
 import android.database.Cursor;
 
-import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Transaction;
 import androidx.room.Update;
 
+import com.example.medicineApp.database.AppDB;
+import com.example.medicineApp.database.model.PrescriptionListItem;
 import com.example.medicineApp.database.model.PrescriptionModel;
+import com.example.medicineApp.database.model.TimeTermCount;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Dao
 public interface PrescriptionDao {
+
+    /** Rows whose [start_day, end_day] range covers :today, in time-term order. */
+    String ACTIVE_ON_FROM = "FROM prescription_drug p " +
+            "JOIN time_term t ON t.id = p.time_term_id " +
+            "WHERE p.start_day <= :today AND p.end_day >= :today " +
+            "ORDER BY t.sort_order ASC, p.uid DESC";
+
+    String ACTIVE_ON = "SELECT p.* " + ACTIVE_ON_FROM;
+
+    /** Only the columns in {@link PrescriptionListItem}. */
+    String LIST_COLUMNS = "p.uid, p.short_name, p.time_term_id, p.start_day, p.end_day, p.doctor_name, p.has_received_today ";
+
     @Insert
     long insert(PrescriptionModel entity);
 
+    @Insert
+    long[] insertAll(List<PrescriptionModel> entities);
+
     @Query("DELETE FROM prescription_drug WHERE uid = :id")
     int deleteById(int id);
 
-    @Query("SELECT * FROM prescription_drug ORDER BY uid DESC")
-    LiveData<List<PrescriptionModel>> observeAll();
+    @Query("SELECT " + LIST_COLUMNS + ACTIVE_ON_FROM)
+    PagingSource<Integer, PrescriptionListItem> pageActiveOn(LocalDate today);
+
+    @Query(ACTIVE_ON)
+    Cursor getActiveOnAsCursor(LocalDate today);
+
+    @Query("SELECT COUNT(*) FROM prescription_drug WHERE start_day <= :today AND end_day >= :today")
+    int countActiveOn(LocalDate today);
+
+    @Query("SELECT COUNT(*) FROM prescription_drug WHERE has_received_today = 1 AND last_received_day = :today")
+    int countReceivedOn(LocalDate today);
+
+    @Query("SELECT time_term_id, COUNT(*) AS active, " +
+            "SUM(has_received_today = 1 AND last_received_day = :today) AS taken " +
+            "FROM prescription_drug " +
+            "WHERE start_day <= :today AND end_day >= :today " +
+            "GROUP BY time_term_id")
+    List<TimeTermCount> countActiveByTimeTermOn(LocalDate today);
 
     @Query("SELECT * FROM prescription_drug WHERE uid = :id")
     PrescriptionModel getByIdSync(int id);
 
-    @Query("SELECT * FROM prescription_drug WHERE uid = :id")
-    LiveData<PrescriptionModel> observeById(int id);
+    @Query("UPDATE prescription_drug SET last_received_day = :today, has_received_today = 1 WHERE uid = :id")
+    int markReceivedToday(int id, LocalDate today);
+
+    // The recompute statements only touch rows whose flag actually flips, so an unchanged
+    // day writes nothing and does not invalidate observers of prescription_drug.
+    @Query("UPDATE prescription_drug SET is_active = 1 " +
+            "WHERE is_active = 0 AND end_day >= :today AND start_day <= :today")
+    int activateOn(LocalDate today);
 
-    @Query("UPDATE prescription_drug SET last_date_received = :today, has_received_today = 1 WHERE uid = :id")
-    int markReceivedToday(int id, String today);
+    @Query("UPDATE prescription_drug SET is_active = 0 " +
+            "WHERE is_active = 1 AND (end_day < :today OR start_day > :today OR start_day IS NULL OR end_day IS NULL)")
+    int deactivateOn(LocalDate today);
 
-    @Query("UPDATE prescription_drug SET is_active = CASE WHEN start_date <= :today AND end_date >= :today THEN 1 ELSE 0 END")
-    void recompute_is_active(String today);
+    @Query("UPDATE prescription_drug SET has_received_today = 0 " +
+            "WHERE has_received_today = 1 AND (last_received_day IS NULL OR last_received_day <> :today)")
+    int resetReceivedBefore(LocalDate today);
+
+    /** @return number of rows whose flags changed */
+    @Transaction
+    default int dailyRecompute(LocalDate today) {
+        return resetReceivedBefore(today) + activateOn(today) + deactivateOn(today);
+    }
+
+    // Delta export window [since, until), both in AppDB.NOW_MILLIS time.
+    @Query("SELECT * FROM prescription_drug WHERE updated_at >= :since AND updated_at < :until ORDER BY updated_at ASC, uid ASC")
+    Cursor getChangedBetweenAsCursor(long since, long until);
+
+    @Query("SELECT uid, deleted_at FROM prescription_tombstone WHERE deleted_at >= :since AND deleted_at < :until ORDER BY deleted_at ASC, uid ASC")
+    Cursor getDeletedBetweenAsCursor(long since, long until);
+
+    @Query("DELETE FROM prescription_tombstone WHERE deleted_at < :before")
+    int pruneTombstones(long before);
+
+    @Query("SELECT " + AppDB.NOW_MILLIS)
+    long nowMillis();
+
+    /**
+     * Reads the clock inside a write transaction: no write can be in flight, so every row
+     * stamped before the returned time is already committed, and later writes stamp at or after it.
+     */
+    @Transaction
+    default long changeCutoff() {
+        return nowMillis();
+    }
 
     @Update
     void update(List<PrescriptionModel> prescription);
@@ -43,23 +114,6 @@ public interface PrescriptionDao {
     @Update
     int update(PrescriptionModel prescription);
 
-    @Query("SELECT * FROM prescription_drug")
-    Cursor getAllAsCursor();
-
-    @Query("SELECT * FROM prescription_drug WHERE uid = :id")
-    Cursor getByIdAsCursor(int id);
-
-    @Query("UPDATE prescription_drug " +
-            "SET " +
-            "    has_received_today = CASE " +
-            "        WHEN last_date_received = :today THEN has_received_today " +
-            "        ELSE 0 " +
-            "    END, " +
-            "    is_active = CASE " +
-            "        WHEN :today BETWEEN start_date AND end_date THEN 1 " +
-            "        ELSE 0 " +
-            "    END")
-    void dailyRecompute(String today);
 
 
 
@@ -77,17 +131,16 @@ public interface PrescriptionDao {
 
         prescription.short_name        = values.getAsString("short_name")        != null ? values.getAsString("short_name")        : prescription.short_name;
         prescription.description       = values.getAsString("description")       != null ? values.getAsString("description")       : prescription.description;
-        prescription.start_date        = values.getAsString("start_date")        != null ? values.getAsString("start_date")        : prescription.start_date;
-        prescription.end_date          = values.getAsString("end_date")          != null ? values.getAsString("end_date")          : prescription.end_date;
+        prescription.start_date        = PrescriptionModel.getDate(values, "start_date", prescription.start_date);
+        prescription.end_date          = PrescriptionModel.getDate(values, "end_date", prescription.end_date);
         prescription.doctor_name       = values.getAsString("doctor_name")       != null ? values.getAsString("doctor_name")       : prescription.doctor_name;
         prescription.doctor_location   = values.getAsString("doctor_location")   != null ? values.getAsString("doctor_location")   : prescription.doctor_location;
-        prescription.last_date_received= values.getAsString("last_date_received")!= null ? values.getAsString("last_date_received"): prescription.last_date_received;
+        prescription.last_date_received= PrescriptionModel.getDate(values, "last_date_received", prescription.last_date_received);
 
         Integer timeTermId = values.getAsInteger("time_term_id");
         if (timeTermId != null) prescription.time_term_id = timeTermId;
 
-        Boolean active = values.getAsBoolean("is_active");
-        if (active != null) prescription.is_active = active;
+        prescription.is_active = PrescriptionModel.isActiveOn(prescription.start_date, prescription.end_date, LocalDate.now());
 
         Boolean receivedToday = values.getAsBoolean("has_received_today");
         if (receivedToday != null) prescription.has_received_today = receivedToday;
@@ -18,6 +18,9 @@ public interface TimeTermDao {
     @Query("SELECT * FROM time_term ORDER BY sort_order ASC")
     LiveData<List<TimeTermModel>> observeAll();
 
+    @Query("SELECT id FROM time_term")
+    List<Integer> getIdsSync();
+
     @Query("SELECT COUNT(*) FROM time_term")
     int countSync();
 }
\ No newline at end of file
@@ -1,8 +1,5 @@
 package com.example.medicineApp.database.enums;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public enum TimeTermEnum {
     BEFORE_BREAKFAST(1, "Before breakfast"),
     AT_BREAKFAST(2, "At breakfast"),
@@ -17,14 +14,6 @@ public enum TimeTermEnum {
     private final int id;
     private final String label;
 
-    private static final Map<Integer, TimeTermEnum> ID_MAP = new HashMap<>();
-
-    static {
-        for (TimeTermEnum status : values()) {
-            ID_MAP.put(status.id, status);
-        }
-    }
-
     TimeTermEnum(int id, String label) {
         this.id = id;
         this.label = label;
@@ -34,8 +23,7 @@ public enum TimeTermEnum {
         return id;
     }
 
-    public static String labelForId(int id) {
-        TimeTermEnum status = ID_MAP.get(id);
-        return status != null ? status.label : "Unknown";
+    public String getLabel() {
+        return label;
     }
 }
@@ -0,0 +1,28 @@
+package com.example.medicineApp.database.enums;
+
+/**
+ * Labels of the time terms in an array indexed by id, so row building and exports look
+ * labels up without boxing. time_term rows name a {@link TimeTermEnum}, so the enum is the
+ * only source of labels.
+ */
+public final class TimeTermTable {
+
+    private static final String UNKNOWN = "Unknown";
+
+    private static final String[] LABELS;
+
+    static {
+        int max = 0;
+        for (TimeTermEnum term : TimeTermEnum.values()) max = Math.max(max, term.getId());
+
+        LABELS = new String[max + 1];
+        for (TimeTermEnum term : TimeTermEnum.values()) LABELS[term.getId()] = term.getLabel();
+    }
+
+    private TimeTermTable() {}
+
+    public static String labelFor(int id) {
+        String label = id >= 0 && id < LABELS.length ? LABELS[id] : null;
+        return label != null ? label : UNKNOWN;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.medicineApp.database.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.time.LocalDate;
+
+// --- intake_event Table ------------------------
+// Append-only: one row per dose marked as taken. No foreign key, so the history
+// outlives a deleted prescription.
+@Entity(
+        tableName = "intake_event",
+        indices = @Index({"prescription_uid", "day"})
+)
+public class IntakeEventModel {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @ColumnInfo(name = "prescription_uid")
+    public int prescription_uid;
+
+    @ColumnInfo(name = "day")
+    @NonNull
+    public LocalDate day;
+
+    /** Epoch millis of the tap, not of the batch write. */
+    @ColumnInfo(name = "taken_at")
+    public long taken_at;
+
+    public IntakeEventModel(int prescription_uid, @NonNull LocalDate day, long taken_at) {
+        this.prescription_uid = prescription_uid;
+        this.day = day;
+        this.taken_at = taken_at;
+    }
+}
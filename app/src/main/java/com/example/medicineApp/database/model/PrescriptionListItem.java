@@ -0,0 +1,35 @@
+package com.example.medicineApp.database.model;
+
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+
+import java.time.LocalDate;
+
+/**
+ * The columns a list row shows, read by narrow projections instead of full entities, so
+ * free-text description and doctor_location never enter the list's cursor windows.
+ */
+public class PrescriptionListItem {
+
+    @ColumnInfo(name = "uid")
+    public int uid;
+
+    @ColumnInfo(name = "short_name")
+    public String short_name;
+
+    @ColumnInfo(name = "time_term_id")
+    public int time_term_id;
+
+    @ColumnInfo(name = "start_day")
+    public LocalDate start_date;
+
+    @ColumnInfo(name = "end_day")
+    public LocalDate end_date;
+
+    @ColumnInfo(name = "doctor_name")
+    @Nullable
+    public String doctor_name;
+
+    @ColumnInfo(name = "has_received_today")
+    public boolean has_received_today;
+}
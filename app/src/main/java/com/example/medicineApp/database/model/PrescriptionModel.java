@@ -9,6 +9,10 @@ import androidx.room.ForeignKey;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.example.medicineApp.utilities.DateCodec;
+
+import java.time.LocalDate;
+
 // --- prescription Table ------------------------
 @Entity(
         tableName = "prescription_drug",
@@ -18,7 +22,13 @@ import androidx.room.PrimaryKey;
                 childColumns = {"time_term_id"},
                 onDelete = ForeignKey.RESTRICT
         ),
-        indices = {@Index("time_term_id")}
+        indices = {
+                @Index("time_term_id"),
+                @Index({"start_day", "end_day"}),
+                @Index({"is_active", "end_day"}),
+                @Index("has_received_today"),
+                @Index("updated_at")
+        }
 )
 
 public class PrescriptionModel {
@@ -32,11 +42,11 @@ public class PrescriptionModel {
     @Nullable
     public String description;
 
-    @ColumnInfo(name = "start_date")
-    public String start_date;
+    @ColumnInfo(name = "start_day")
+    public LocalDate start_date;
 
-    @ColumnInfo(name = "end_date")
-    public String end_date;
+    @ColumnInfo(name = "end_day")
+    public LocalDate end_date;
 
     @ColumnInfo(name = "time_term_id")
     public int time_term_id;
@@ -55,16 +65,20 @@ public class PrescriptionModel {
     @ColumnInfo(name = "has_received_today")
     public boolean has_received_today;
 
-    @ColumnInfo(name = "last_date_received")
+    @ColumnInfo(name = "last_received_day")
     @Nullable
-    public String last_date_received;
+    public LocalDate last_date_received;
+
+    /** Epoch millis of the last real change; stamped by triggers (see AppDB), not by callers. */
+    @ColumnInfo(name = "updated_at", defaultValue = "0")
+    public long updated_at;
 
     public PrescriptionModel() {}
 
     public PrescriptionModel(String short_name,
                              @Nullable String description,
-                             String start_date,
-                             String end_date,
+                             LocalDate start_date,
+                             LocalDate end_date,
                              int time_term_id,
                              @Nullable String doctor_name,
                              @Nullable String doctor_location) {
@@ -80,28 +94,77 @@ public class PrescriptionModel {
         this.last_date_received = null;
     }
 
+    /**
+     * The rules every new prescription goes through, whether typed in or imported: a name,
+     * both dates, and an end that is not before the start. Text is trimmed, blanks become
+     * null, and is_active is set for {@code today} because the daily recompute runs once.
+     */
+    public static PrescriptionModel validated(String name,
+                                              @Nullable String description,
+                                              LocalDate start,
+                                              LocalDate end,
+                                              int timeTermId,
+                                              @Nullable String doctor,
+                                              @Nullable String location,
+                                              LocalDate today) {
+        if (name == null || name.trim().isEmpty())
+            throw new IllegalArgumentException("Prescription name required");
+        if (start == null || end == null)
+            throw new IllegalArgumentException("Start and end date required");
+        if (end.isBefore(start))
+            throw new IllegalArgumentException("End date must be after start date");
+
+        PrescriptionModel p = new PrescriptionModel(
+                name.trim(),
+                safeTrim(description),
+                start,
+                end,
+                timeTermId,
+                safeTrim(doctor),
+                safeTrim(location)
+        );
+        p.is_active = isActiveOn(start, end, today);
+        return p;
+    }
+
+    /** Same rule as the daily recompute: rows missing a date are never active. */
+    public static boolean isActiveOn(@Nullable LocalDate start, @Nullable LocalDate end, LocalDate today) {
+        return start != null && end != null && !start.isAfter(today) && !end.isBefore(today);
+    }
+
     public static PrescriptionModel fromContentValues(ContentValues values) {
         PrescriptionModel p = new PrescriptionModel();
 
         p.uid                = getInt(values, "uid", p.uid);
         p.short_name         = getString(values, "short_name", p.short_name);
         p.description        = getString(values, "description", p.description);
-        p.start_date         = getString(values, "start_date", p.start_date);
-        p.end_date           = getString(values, "end_date", p.end_date);
+        p.start_date         = getDate(values, "start_date", p.start_date);
+        p.end_date           = getDate(values, "end_date", p.end_date);
         p.time_term_id       = getInt(values, "time_term_id", p.time_term_id);
         p.doctor_name        = getString(values, "doctor_name", p.doctor_name);
         p.doctor_location    = getString(values, "doctor_location", p.doctor_location);
-        p.is_active          = getBool(values, "is_active", p.is_active);
-        p.last_date_received = getString(values, "last_date_received", p.last_date_received);
+        p.last_date_received = getDate(values, "last_date_received", p.last_date_received);
         p.has_received_today = getBool(values, "has_received_today", p.has_received_today);
+        // Derived from the dates: the daily recompute only revisits it at midnight.
+        p.is_active          = isActiveOn(p.start_date, p.end_date, LocalDate.now());
 
         return p;
     }
 
+    private static String safeTrim(String s) {
+        return (s == null || s.trim().isEmpty()) ? null : s.trim();
+    }
+
     private static String getString(ContentValues v, String key, String def) {
         return v.containsKey(key) ? v.getAsString(key) : def;
     }
 
+    /** Provider clients keep sending ISO-8601 strings ("yyyy-MM-dd"); blank counts as absent. */
+    public static LocalDate getDate(ContentValues v, String key, LocalDate def) {
+        LocalDate val = DateCodec.parseIso(v.getAsString(key));
+        return val != null ? val : def;
+    }
+
     private static int getInt(ContentValues v, String key, int def) {
         Integer val = v.getAsInteger(key);
         return val != null ? val : def;
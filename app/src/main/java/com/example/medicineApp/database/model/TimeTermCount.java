@@ -0,0 +1,16 @@
+package com.example.medicineApp.database.model;
+
+import androidx.room.ColumnInfo;
+
+/** Per-time-term aggregate row for the provider stats call. */
+public class TimeTermCount {
+
+    @ColumnInfo(name = "time_term_id")
+    public int time_term_id;
+
+    @ColumnInfo(name = "active")
+    public int active;
+
+    @ColumnInfo(name = "taken")
+    public int taken;
+}
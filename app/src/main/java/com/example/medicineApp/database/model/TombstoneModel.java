@@ -0,0 +1,22 @@
+package com.example.medicineApp.database.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// --- prescription_tombstone Table ------------------------
+// Written by the prescription_drug delete trigger (see AppDB) so delta exports can report deletions.
+@Entity(
+        tableName = "prescription_tombstone",
+        indices = @Index("deleted_at")
+)
+public class TombstoneModel {
+
+    @PrimaryKey
+    public int uid;
+
+    /** Epoch millis, same clock as {@link PrescriptionModel#updated_at}. */
+    @ColumnInfo(name = "deleted_at")
+    public long deleted_at;
+}
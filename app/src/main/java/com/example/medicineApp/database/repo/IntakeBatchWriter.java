@@ -0,0 +1,111 @@
+package com.example.medicineApp.database.repo;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.medicineApp.database.AppDB;
+import com.example.medicineApp.database.model.IntakeEventModel;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Collects intake taps for a short window, or until {@link #MAX_BATCH} are queued, and
+ * writes them in one transaction on the write lane. Each prescription/day pair gets a single
+ * prescription_drug update, and an intake_event row only if that update hit a prescription
+ * and no intake is journaled for that day yet.
+ */
+final class IntakeBatchWriter {
+
+    private static final long WINDOW_MS = 250;
+    private static final int MAX_BATCH  = 32;
+
+    private final AppDB db;
+    private final IntConsumer onWritten;
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    private final List<Pending> pending = new ArrayList<>(); // guarded by this
+    private boolean scheduled;                                // guarded by this
+
+    /** {@code onWritten} gets each affected uid after the batch has committed. */
+    IntakeBatchWriter(@NonNull AppDB db, @NonNull IntConsumer onWritten) {
+        this.db = db;
+        this.onWritten = onWritten;
+    }
+
+    /** {@code done} receives the prescription_drug rows updated for this tap, 0 if the batch failed. */
+    void add(int uid, @NonNull LocalDate day, @Nullable IntConsumer done) {
+        boolean full;
+        boolean schedule;
+        synchronized (this) {
+            pending.add(new Pending(new IntakeEventModel(uid, day, System.currentTimeMillis()), done));
+            full = pending.size() >= MAX_BATCH;
+            schedule = !full && !scheduled;
+            if (schedule) scheduled = true;
+        }
+
+        if (full) AppDB.io(AppDB.Lane.WRITE).execute(this::flush);
+        else if (schedule) main.postDelayed(() -> AppDB.io(AppDB.Lane.WRITE).execute(this::flush), WINDOW_MS);
+    }
+
+    private void flush() {
+        List<Pending> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        if (batch.isEmpty()) return;
+
+        Map<Long, Integer> updated = new HashMap<>();
+        try {
+            db.runInTransaction(() -> {
+                List<IntakeEventModel> journal = new ArrayList<>();
+
+                // Repeated taps on the same dose cost a single UPDATE and journal the first tap only.
+                for (Pending p : batch) {
+                    IntakeEventModel e = p.event;
+                    long key = key(e);
+                    if (updated.containsKey(key)) continue;
+
+                    int rows = db.prescriptionDao().markReceivedToday(e.prescription_uid, e.day);
+                    updated.put(key, rows);
+                    if (rows > 0 && !db.intakeEventDao().existsOn(e.prescription_uid, e.day)) journal.add(e);
+                }
+
+                if (!journal.isEmpty()) db.intakeEventDao().insertAll(journal);
+            });
+        } catch (RuntimeException e) {
+            Log.e("IntakeBatchWriter", "Intake batch of " + batch.size() + " failed", e);
+            updated.clear();
+        }
+
+        for (Pending p : batch) {
+            Integer rows = updated.get(key(p.event));
+            if (rows != null) onWritten.accept(p.event.prescription_uid);
+            if (p.done != null) p.done.accept(rows != null ? rows : 0);
+        }
+    }
+
+    private static long key(IntakeEventModel e) {
+        return ((long) e.prescription_uid << 32) | (e.day.toEpochDay() & 0xffffffffL);
+    }
+
+    private static final class Pending {
+        final IntakeEventModel event;
+        @Nullable final IntConsumer done;
+
+        Pending(IntakeEventModel event, @Nullable IntConsumer done) {
+            this.event = event;
+            this.done = done;
+        }
+    }
+}
@@ -1,35 +1,205 @@
 package com.example.medicineApp.database.repo;
 
+import android.content.Context;
+import android.database.Cursor;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.room.InvalidationTracker;
 
 import com.example.medicineApp.database.AppDB;
+import com.example.medicineApp.database.model.PrescriptionListItem;
 import com.example.medicineApp.database.model.PrescriptionModel;
 import com.example.medicineApp.database.model.TimeTermModel;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
+/**
+ * Shared per process (see {@link #get}) so every caller sees the same entity cache. Single
+ * prescriptions by uid are kept in a small LRU; Room's InvalidationTracker clears it after
+ * any committed change to prescription_drug, and the write paths here evict their row at once.
+ */
 public class PrescriptionRepository {
+    /** Pages of 30 rows, at most 200 held in memory however long the history is. */
+    private static final PagingConfig PAGE_CONFIG = new PagingConfig(30, 15, false, 60, 200);
+
+    private static final String TABLE = "prescription_drug";
+    private static final int CACHE_SIZE = 64;
+
+    private static volatile PrescriptionRepository INSTANCE;
+
     private final AppDB db;
+    private final LruCache<Integer, PrescriptionModel> cache = new LruCache<>(CACHE_SIZE);
+    // Bumped on every eviction, so a read that raced with one does not put its stale row back.
+    private final AtomicLong cacheGeneration = new AtomicLong();
+    private final IntakeBatchWriter intakes;
 
-    public PrescriptionRepository(AppDB db) {
+    private PrescriptionRepository(AppDB db) {
         this.db = db;
+        this.intakes = new IntakeBatchWriter(db, this::evict);
+
+        // addObserver is a @WorkerThread call that may sync triggers; get() can run on the main thread.
+        InvalidationTracker.Observer observer = new InvalidationTracker.Observer(TABLE) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidateCache();
+            }
+        };
+        AppDB.io(AppDB.Lane.READ).execute(() -> db.getInvalidationTracker().addObserver(observer));
+    }
+
+    public static PrescriptionRepository get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (PrescriptionRepository.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PrescriptionRepository(AppDB.get(context));
+                }
+            }
+        }
+        return INSTANCE;
     }
     public void addSync(PrescriptionModel prescription){
         db.prescriptionDao().insert(prescription);
     }
-    public LiveData<List<PrescriptionModel>> observeAllPrescriptions() {
-        return db.prescriptionDao().observeAll();
+
+    /** One transaction per call; the importer hands over fixed-size batches. */
+    public void addBatchSync(List<PrescriptionModel> batch) {
+        db.runInTransaction(() -> { db.prescriptionDao().insertAll(batch); });
+    }
+
+    public List<Integer> timeTermIdsSync() {
+        return db.timeTermDao().getIdsSync();
+    }
+
+    /** List rows only; {@link #observePrescription} loads the full entity for the detail screen. */
+    public LiveData<PagingData<PrescriptionListItem>> pageActivePrescriptions(LocalDate today) {
+        Pager<Integer, PrescriptionListItem> pager = new Pager<>(PAGE_CONFIG, () -> db.prescriptionDao().pageActiveOn(today));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    public Cursor activePrescriptionsCursor(LocalDate today) {
+        return db.prescriptionDao().getActiveOnAsCursor(today);
     }
 
+    public long changeCutoffSync() { return db.prescriptionDao().changeCutoff(); }
+    public Cursor changedCursor(long since, long until) { return db.prescriptionDao().getChangedBetweenAsCursor(since, until); }
+    public Cursor deletedCursor(long since, long until) { return db.prescriptionDao().getDeletedBetweenAsCursor(since, until); }
+    public int pruneTombstonesSync(long before) { return db.prescriptionDao().pruneTombstones(before); }
+
     public LiveData<List<TimeTermModel>> observeTimeTerms() {
         return db.timeTermDao().observeAll();
     }
 
     public int deleteByIdSync(int id) {
-        return db.prescriptionDao().deleteById(id);
+        int rows = db.prescriptionDao().deleteById(id);
+        evict(id);
+        return rows;
+    }
+
+    public LiveData<PrescriptionModel> observePrescription(int id) { return new PrescriptionLiveData(id); }
+
+    /**
+     * Journals a taken dose and marks the prescription received on {@code day}. Returns at
+     * once; the write is batched with other taps, and {@code done} is called on the write
+     * lane with the prescription_drug rows updated once the batch has committed.
+     */
+    public void recordIntake(int id, LocalDate day, @Nullable IntConsumer done) {
+        intakes.add(id, day, done);
     }
 
-    public LiveData<PrescriptionModel> observePrescription(int id) { return db.prescriptionDao().observeById(id); }
-    public int markReceivedTodaySync(int id, String today) { return db.prescriptionDao().markReceivedToday(id, today); }
-    public void recompute_is_activeSync(String today){ db.prescriptionDao().recompute_is_active(today); }
+    /** Served from the cache when possible. The entity is shared: treat it as read-only. */
+    @Nullable
+    public PrescriptionModel getByIdSync(int id) {
+        PrescriptionModel cached = cache.get(id);
+        return cached != null ? cached : load(id);
+    }
+
+    /** For writes that bypass this class but know their row, such as the provider's. */
+    public void evict(int id) {
+        cacheGeneration.incrementAndGet();
+        cache.remove(id);
+    }
+
+    public void invalidateCache() {
+        cacheGeneration.incrementAndGet();
+        cache.evictAll();
+    }
+
+    public int cacheHitCount() { return cache.hitCount(); }
+    public int cacheMissCount() { return cache.missCount(); }
+
+    @Nullable
+    private PrescriptionModel load(int id) {
+        long generation = cacheGeneration.get();
+        PrescriptionModel loaded = db.prescriptionDao().getByIdSync(id);
+        if (loaded != null && cacheGeneration.get() == generation) cache.put(id, loaded);
+        return loaded;
+    }
+
+    /**
+     * Detail-screen LiveData: a cached row is emitted straight away on the main thread,
+     * otherwise it is loaded on the read pool; while observed it reloads after each change.
+     */
+    private final class PrescriptionLiveData extends LiveData<PrescriptionModel> {
+        private final int id;
+        private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer(TABLE) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                // Observers run in no set order, so do not rely on the repository's one having evicted yet.
+                invalidateCache();
+                reload();
+            }
+        };
+
+        private volatile boolean active;
+        private boolean registered; // guarded by this
+
+        PrescriptionLiveData(int id) {
+            this.id = id;
+        }
+
+        @Override
+        protected void onActive() {
+            active = true;
+            AppDB.io(AppDB.Lane.READ).execute(this::syncRegistration);
+
+            PrescriptionModel cached = cache.get(id);
+            if (cached == null) reload();
+            else if (cached != getValue()) setValue(cached);
+        }
+
+        @Override
+        protected void onInactive() {
+            active = false;
+            AppDB.io(AppDB.Lane.READ).execute(this::syncRegistration);
+        }
+
+        /**
+         * Tracker calls are @WorkerThread, so they run on the read pool. Tasks from a quick
+         * active/inactive flip can run in either order, so each one just matches the latest state.
+         */
+        private synchronized void syncRegistration() {
+            if (active == registered) return;
+            if (active) db.getInvalidationTracker().addObserver(observer);
+            else db.getInvalidationTracker().removeObserver(observer);
+            registered = active;
+        }
+
+        private void reload() {
+            AppDB.io(AppDB.Lane.READ).execute(() -> {
+                PrescriptionModel loaded = load(id);
+                if (loaded != getValue()) postValue(loaded);
+            });
+        }
+    }
 }
\ No newline at end of file
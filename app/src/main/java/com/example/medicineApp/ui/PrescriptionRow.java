@@ -0,0 +1,95 @@
+package com.example.medicineApp.ui;
+
+import androidx.annotation.NonNull;
+
+import com.example.medicineApp.database.enums.TimeTermTable;
+import com.example.medicineApp.database.model.PrescriptionListItem;
+import com.example.medicineApp.utilities.DateCodec;
+
+import java.time.LocalDate;
+
+/**
+ * What one list row shows, already rendered. Built off the main thread as pages load, so
+ * binding a row is only a few setText calls. Equality covers exactly the displayed text.
+ */
+public final class PrescriptionRow {
+
+    // Parts of a row, used as bits in change payloads; see changesTo.
+    public static final int TITLE    = 1;
+    public static final int SCHEDULE = 1 << 1;
+    public static final int DATES    = 1 << 2;
+    public static final int SUBTITLE = 1 << 3;
+    public static final int TAKEN    = 1 << 4;
+    public static final int ALL      = TITLE | SCHEDULE | DATES | SUBTITLE | TAKEN;
+
+    public final int uid;
+    @NonNull public final String idLabel;
+    @NonNull public final String title;
+    @NonNull public final String schedule;
+    @NonNull public final String dates;
+    @NonNull public final String subtitle;
+    public final boolean takenToday;
+
+    private PrescriptionRow(int uid, @NonNull String title, @NonNull String schedule, @NonNull String dates, @NonNull String subtitle, boolean takenToday) {
+        this.uid      = uid;
+        this.idLabel  = "ID: " + uid;
+        this.title    = title;
+        this.schedule = schedule;
+        this.dates    = dates;
+        this.subtitle = subtitle;
+        this.takenToday = takenToday;
+    }
+
+    public static PrescriptionRow from(@NonNull PrescriptionListItem rx) {
+        return new PrescriptionRow(
+                rx.uid,
+                isEmpty(rx.short_name) ? "Medication name" : rx.short_name,
+                TimeTermTable.labelFor(rx.time_term_id),
+                formatDate(rx.start_date) + " → " + formatDate(rx.end_date),
+                rx.doctor_name == null ? "" : rx.doctor_name,
+                rx.has_received_today
+        );
+    }
+
+    /** Bitmask of the parts that differ in {@code n}, a later version of the same row. */
+    public int changesTo(@NonNull PrescriptionRow n) {
+        int changes = 0;
+        if (!title.equals(n.title))       changes |= TITLE;
+        if (!schedule.equals(n.schedule)) changes |= SCHEDULE;
+        if (!dates.equals(n.dates))       changes |= DATES;
+        if (!subtitle.equals(n.subtitle)) changes |= SUBTITLE;
+        if (takenToday != n.takenToday)   changes |= TAKEN;
+        return changes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PrescriptionRow)) return false;
+
+        PrescriptionRow r = (PrescriptionRow) o;
+        return uid == r.uid &&
+                title.equals(r.title) &&
+                schedule.equals(r.schedule) &&
+                dates.equals(r.dates) &&
+                subtitle.equals(r.subtitle) &&
+                takenToday == r.takenToday;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = uid;
+        h = 31 * h + title.hashCode();
+        h = 31 * h + schedule.hashCode();
+        h = 31 * h + dates.hashCode();
+        h = 31 * h + subtitle.hashCode();
+        h = 31 * h + (takenToday ? 1 : 0);
+        return h;
+    }
+
+    private static boolean isEmpty(String s) { return s == null || s.trim().isEmpty(); }
+
+    private static String formatDate(LocalDate date) {
+        return date == null ? "" : DateCodec.shortDate(date);
+    }
+}
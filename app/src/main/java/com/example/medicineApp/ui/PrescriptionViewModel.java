@@ -5,89 +5,52 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 
 import com.example.medicineApp.database.AppDB;
 import com.example.medicineApp.database.repo.PrescriptionRepository;
 import com.example.medicineApp.database.model.PrescriptionModel;
 import com.example.medicineApp.database.model.TimeTermModel;
+import com.example.medicineApp.workers.DailyRecomputeCoordinator;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.HashMap;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.function.IntConsumer;
 
 public class PrescriptionViewModel extends AndroidViewModel {
 
     private final PrescriptionRepository repo;
     public final LiveData<List<TimeTermModel>> timeTerms;
-    public final MediatorLiveData<List<PrescriptionModel>> activePrescriptions = new MediatorLiveData<>();
-
-    private static final SimpleDateFormat ISO = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    public final LiveData<PagingData<PrescriptionRow>> activePrescriptions;
 
     public PrescriptionViewModel(@NonNull Application app) {
         super(app);
-        repo = new PrescriptionRepository(AppDB.get(app));
+        repo = PrescriptionRepository.get(app);
         timeTerms = repo.observeTimeTerms();
-        LiveData<List<PrescriptionModel>> allPrescriptions = repo.observeAllPrescriptions();
-
-        AppDB.io().execute(() -> repo.recompute_is_activeSync(todayIso()));
 
-        activePrescriptions.addSource(allPrescriptions, list -> recomputeActive(list, timeTerms.getValue()));
-        activePrescriptions.addSource(timeTerms, terms -> recomputeActive(allPrescriptions.getValue(), terms));
+        // Filtering by date and ordering by time term both happen in SQLite, one page at a time.
+        // Only a new date re-points the list: a repeated date would build a fresh Pager and
+        // reload and re-diff identical pages, while row changes already reach the open Pager
+        // through Room invalidation. Each page is turned into display rows on the read pool
+        // before it reaches the adapter, which diffs in the background and drops stale pages.
+        LiveData<LocalDate> today = Transformations.distinctUntilChanged(DailyRecomputeCoordinator.get(app).today());
+        LiveData<PagingData<PrescriptionRow>> rows = Transformations.map(
+                Transformations.switchMap(today, repo::pageActivePrescriptions),
+                page -> PagingDataTransforms.map(page, AppDB.io(AppDB.Lane.READ), PrescriptionRow::from));
+        activePrescriptions = PagingLiveData.cachedIn(rows, this);
     }
 
-    private void recomputeActive(List<PrescriptionModel> prescriptions, List<TimeTermModel> terms) {
-        if (prescriptions == null || prescriptions.isEmpty()) {
-            activePrescriptions.setValue(Collections.emptyList());
-            return;
-        }
-
-        Map<Integer, Integer> sortOrderMap = new HashMap<>();
-        if (terms != null) {
-            terms.forEach(t -> sortOrderMap.put(t.id, t.sortOrder));
-        }
-
-        String today = todayIso();
-
-        List<PrescriptionModel> validPrescriptions = new ArrayList<>();
-        for (PrescriptionModel p : prescriptions) {
-            boolean inRange = p.start_date.compareTo(today) <= 0 && p.end_date.compareTo(today) >= 0;
-            if (inRange)
-                validPrescriptions.add(p);
-        }
-
-        validPrescriptions.sort(Comparator.comparingInt(p -> {
-            Integer v = sortOrderMap.get(p.time_term_id);
-            return v != null ? v : Integer.MAX_VALUE;
-        }));
-
-        activePrescriptions.setValue(validPrescriptions);
-    }
+    public void addPrescription(String name, String description, LocalDate start, LocalDate end, int timeTermId, String doctor, String location) {
+        // Validates on the caller's thread so the dialog can show the message.
+        PrescriptionModel prescription = PrescriptionModel.validated(
+                name, description, start, end, timeTermId, doctor, location, LocalDate.now());
 
-    public void addPrescription(String name, String description, String startIso, String endIso, int timeTermId, String doctor, String location) {
-        if (name == null || name.trim().isEmpty())
-            throw new IllegalArgumentException("Prescription name required");
-        if (endIso.compareTo(startIso) < 0)
-            throw new IllegalArgumentException("End date must be after start date");
-
-        AppDB.io().execute(() -> {
+        AppDB.io(AppDB.Lane.WRITE).execute(() -> {
             try {
-                repo.addSync(new PrescriptionModel(
-                        name.trim(),
-                        safeTrim(description),
-                        startIso,
-                        endIso,
-                        timeTermId,
-                        safeTrim(doctor),
-                        safeTrim(location)
-                ));
+                repo.addSync(prescription);
             } catch (Exception e) {
                 android.util.Log.e("PrescriptionViewModel", "Insert failed", e);
             }
@@ -99,25 +62,14 @@ public class PrescriptionViewModel extends AndroidViewModel {
     }
 
     public void deleteByUid(int uid, IntCallback cb) {
-        AppDB.io().execute(() -> {
+        AppDB.io(AppDB.Lane.WRITE).execute(() -> {
             int rows = repo.deleteByIdSync(uid);
             if (cb != null) cb.accept(rows);
         });
     }
 
     public void receivedToday(int uid, IntConsumer cb) {
-        AppDB.io().execute(() -> {
-            int rows = repo.markReceivedTodaySync(uid, todayIso());
-            if (cb != null) cb.accept(rows);
-        });
-    }
-
-    private static String safeTrim(String s) {
-        return (s == null || s.trim().isEmpty()) ? null : s.trim();
-    }
-
-    private static String todayIso() {
-        return ISO.format(new Date());
+        repo.recordIntake(uid, LocalDate.now(), cb);
     }
 
     public interface IntCallback {
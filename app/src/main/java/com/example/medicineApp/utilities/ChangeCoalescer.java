@@ -0,0 +1,65 @@
+package com.example.medicineApp.utilities;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects changed URIs for a short window and sends one notification per batch:
+ * the item URIs while the batch is small, the collection URI once it grows past
+ * {@link #MAX_ITEM_URIS}.
+ */
+final class ChangeCoalescer {
+
+    private static final long WINDOW_MS   = 100;
+    private static final int MAX_ITEM_URIS = 16;
+
+    private final ContentResolver resolver;
+    private final Uri collectionUri;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    private final Set<Uri> pending = new LinkedHashSet<>(); // guarded by this
+    private boolean scheduled;                              // guarded by this
+
+    ChangeCoalescer(@NonNull ContentResolver resolver, @NonNull Uri collectionUri) {
+        this.resolver = resolver;
+        this.collectionUri = collectionUri;
+    }
+
+    void add(@NonNull Uri uri) {
+        synchronized (this) {
+            pending.add(uri);
+            if (scheduled) return;
+            scheduled = true;
+        }
+        timer.schedule(this::flush, WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<Uri> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        if (batch.isEmpty()) return;
+
+        if (batch.size() > MAX_ITEM_URIS || batch.contains(collectionUri)) {
+            resolver.notifyChange(collectionUri, null);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            resolver.notifyChange(batch, null, 0);
+        } else {
+            for (Uri uri : batch) resolver.notifyChange(uri, null);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.medicineApp.utilities;
+
+import androidx.annotation.Nullable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * The one place dates are parsed and rendered. Formatters are immutable java.time ones and
+ * safe to share; rendered strings are memoised per epoch day, so binding rows or writing
+ * exports for the same few dates does not format them again.
+ */
+public final class DateCodec {
+
+    private static final DateTimeFormatter LONG  = DateTimeFormatter.ofPattern("MMMM d, yyyy", Locale.US);
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss", Locale.US);
+
+    private static final Memo ISO_MEMO  = new Memo(DateTimeFormatter.ISO_LOCAL_DATE, Locale.ROOT);
+    private static final Memo LONG_MEMO = new Memo(LONG, Locale.US);
+
+    // Follows the device locale, so it is rebuilt if that changes while the process lives.
+    private static volatile Memo shortMemo = shortMemo(Locale.getDefault());
+
+    private DateCodec() {}
+
+    /** yyyy-MM-dd, the format stored by the provider contract and written to exports. */
+    public static String iso(LocalDate date) {
+        return ISO_MEMO.format(date);
+    }
+
+    /** Strict yyyy-MM-dd; blank input is null, anything else malformed throws DateTimeParseException. */
+    @Nullable
+    public static LocalDate parseIso(@Nullable String s) {
+        if (s == null) return null;
+        s = s.trim();
+        return s.isEmpty() ? null : LocalDate.parse(s, DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    /** "Jan 5, 2025" in the device locale, for list rows. */
+    public static String shortDate(LocalDate date) {
+        Locale locale = Locale.getDefault();
+        Memo memo = shortMemo;
+        if (!memo.locale.equals(locale)) shortMemo = memo = shortMemo(locale);
+        return memo.format(date);
+    }
+
+    /** "January 5, 2025", for the detail screen. */
+    public static String longDate(LocalDate date) {
+        return LONG_MEMO.format(date);
+    }
+
+    /** Local date-time for export file names, e.g. 20250105_142233. */
+    public static String fileStamp() {
+        return LocalDateTime.now().format(STAMP);
+    }
+
+    private static Memo shortMemo(Locale locale) {
+        return new Memo(DateTimeFormatter.ofPattern("MMM d, yyyy", locale), locale);
+    }
+
+    /**
+     * Direct-mapped cache of rendered days. Entries are immutable, so threads racing on a
+     * slot can at worst overwrite each other and format a day twice; no locking is needed.
+     */
+    private static final class Memo {
+        private static final int SLOTS = 256;
+
+        final Locale locale;
+        private final DateTimeFormatter formatter;
+        private final Entry[] slots = new Entry[SLOTS];
+
+        Memo(DateTimeFormatter formatter, Locale locale) {
+            this.formatter = formatter;
+            this.locale = locale;
+        }
+
+        String format(LocalDate date) {
+            long day = date.toEpochDay();
+            int slot = (int) (day & (SLOTS - 1));
+
+            Entry e = slots[slot];
+            if (e != null && e.day == day) return e.text;
+
+            String text = formatter.format(date);
+            slots[slot] = new Entry(day, text);
+            return text;
+        }
+    }
+
+    private static final class Entry {
+        final long day;
+        final String text;
+
+        Entry(long day, String text) {
+            this.day = day;
+            this.text = text;
+        }
+    }
+}
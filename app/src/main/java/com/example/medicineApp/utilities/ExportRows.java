@@ -0,0 +1,89 @@
+package com.example.medicineApp.utilities;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import com.example.medicineApp.database.model.PrescriptionModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Forward-only view over a prescription_drug cursor for the exporters. Each {@link #next()}
+ * refills the same {@link PrescriptionModel}, so memory stays flat however many rows there are.
+ */
+public final class ExportRows implements Closeable {
+
+    /** Called after each row is loaded; throwing aborts the export that is reading the rows. */
+    public interface RowListener { void onRow(int done, int total) throws IOException; }
+
+    private final Cursor cursor;
+    private final PrescriptionModel row = new PrescriptionModel();
+
+    private RowListener listener;
+    private int done;
+
+    private final int uid, shortName, description, startDay, endDay, timeTermId,
+            doctorName, doctorLocation, isActive, hasReceivedToday, lastReceivedDay, updatedAt;
+
+    public ExportRows(@NonNull Cursor cursor) {
+        this.cursor     = cursor;
+        uid              = cursor.getColumnIndexOrThrow("uid");
+        shortName        = cursor.getColumnIndexOrThrow("short_name");
+        description      = cursor.getColumnIndexOrThrow("description");
+        startDay         = cursor.getColumnIndexOrThrow("start_day");
+        endDay           = cursor.getColumnIndexOrThrow("end_day");
+        timeTermId       = cursor.getColumnIndexOrThrow("time_term_id");
+        doctorName       = cursor.getColumnIndexOrThrow("doctor_name");
+        doctorLocation   = cursor.getColumnIndexOrThrow("doctor_location");
+        isActive         = cursor.getColumnIndexOrThrow("is_active");
+        hasReceivedToday = cursor.getColumnIndexOrThrow("has_received_today");
+        lastReceivedDay  = cursor.getColumnIndexOrThrow("last_received_day");
+        updatedAt        = cursor.getColumnIndexOrThrow("updated_at");
+    }
+
+    public int count() {
+        return cursor.getCount();
+    }
+
+    public void setListener(RowListener listener) {
+        this.listener = listener;
+    }
+
+    /** Moves to the next row and loads it into {@link #current()}. */
+    public boolean next() throws IOException {
+        if (!cursor.moveToNext()) return false;
+
+        row.uid                = cursor.getInt(uid);
+        row.short_name         = cursor.getString(shortName);
+        row.description        = cursor.getString(description);
+        row.start_date         = getDate(startDay);
+        row.end_date           = getDate(endDay);
+        row.time_term_id       = cursor.getInt(timeTermId);
+        row.doctor_name        = cursor.getString(doctorName);
+        row.doctor_location    = cursor.getString(doctorLocation);
+        row.is_active          = cursor.getInt(isActive) != 0;
+        row.has_received_today = cursor.getInt(hasReceivedToday) != 0;
+        row.last_date_received = getDate(lastReceivedDay);
+        row.updated_at         = cursor.getLong(updatedAt);
+
+        if (listener != null) listener.onRow(++done, cursor.getCount());
+        return true;
+    }
+
+    /** The row loaded by the last {@link #next()}; only valid until the next call. */
+    public PrescriptionModel current() {
+        return row;
+    }
+
+    private LocalDate getDate(int column) {
+        return cursor.isNull(column) ? null : LocalDate.ofEpochDay(cursor.getLong(column));
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
@@ -17,21 +17,15 @@ import androidx.lifecycle.LifecycleOwner;
 
 import com.example.medicineApp.R;
 import com.example.medicineApp.database.AppDB;
-import com.example.medicineApp.database.enums.TimeTermEnum;
 import com.example.medicineApp.database.model.TimeTermModel;
 import com.example.medicineApp.ui.PrescriptionViewModel;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class PrescriptionCreate {
 
-    private static final SimpleDateFormat ISO = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-
     public static void show(@NonNull Context ctx, @NonNull PrescriptionViewModel vm) {
         final View root = LayoutInflater.from(ctx).inflate(R.layout.prescription_create, null, false);
 
@@ -91,7 +85,10 @@ public class PrescriptionCreate {
 
                     final int termId = termIds.get(sel);
 
-                    if (startIso[0].compareTo(endIso[0]) > 0) {
+                    final LocalDate start = DateCodec.parseIso(startIso[0]);
+                    final LocalDate end   = DateCodec.parseIso(endIso[0]);
+
+                    if (start.isAfter(end)) {
                         toast(ctx, "End date MUST be after start date");
                         return;
                     }
@@ -99,8 +96,8 @@ public class PrescriptionCreate {
                     vm.addPrescription(
                             title,
                             trimOrNull(notes.getText()),
-                            startIso[0],
-                            endIso[0],
+                            start,
+                            end,
                             termId,
                             trimOrNull(prescriber.getText()),
                             trimOrNull(location.getText())
@@ -112,24 +109,24 @@ public class PrescriptionCreate {
     }
 
     private static void pickDateIso(Context ctx, StringTarget cb) {
-        final Calendar now = Calendar.getInstance();
+        final LocalDate today = LocalDate.now();
         new DatePickerDialog(
                 ctx,
-                (v, y, m, d) -> cb.set(String.format(Locale.US, "%04d-%02d-%02d", y, m + 1, d)),
-                now.get(Calendar.YEAR),
-                now.get(Calendar.MONTH),
-                now.get(Calendar.DAY_OF_MONTH)
+                (v, y, m, d) -> cb.set(DateCodec.iso(LocalDate.of(y, m + 1, d))),
+                today.getYear(),
+                today.getMonthValue() - 1,
+                today.getDayOfMonth()
         ).show();
     }
 
-    private static String todayIso() { return ISO.format(new Date()); }
+    private static String todayIso() { return DateCodec.iso(LocalDate.now()); }
 
     private static void fillTerms(List<TimeTermModel> src, List<Integer> ids, List<String> labels, ArrayAdapter<String> ad) {
         ids.clear();
         labels.clear();
         for (TimeTermModel t : src) {
             ids.add(t.id);
-            labels.add(TimeTermEnum.labelForId(t.id));
+            labels.add(t.name.getLabel());
         }
         ad.notifyDataSetChanged();
     }
@@ -13,12 +13,10 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.medicineApp.Dashboard;
 import com.example.medicineApp.R;
-import com.example.medicineApp.database.enums.TimeTermEnum;
+import com.example.medicineApp.database.enums.TimeTermTable;
 import com.example.medicineApp.ui.PrescriptionViewModel;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.time.LocalDate;
 
 public class PrescriptionDetail extends AppCompatActivity {
     private PrescriptionViewModel viewModel;
@@ -65,9 +63,9 @@ public class PrescriptionDetail extends AppCompatActivity {
             prescriptionNameView.setText(prescription.short_name == null ? "-" : prescription.short_name);
             descView.setText(prescription.description == null ? "-" : prescription.description);
             datesView.setText(formatDateFullMonth(prescription.start_date) + " → " + formatDateFullMonth(prescription.end_date));
-            timeTermView.setText(TimeTermEnum.labelForId(prescription.time_term_id));            doctorNameView.setText(prescription.doctor_name == null ? "-" : prescription.doctor_name);
+            timeTermView.setText(TimeTermTable.labelFor(prescription.time_term_id));            doctorNameView.setText(prescription.doctor_name == null ? "-" : prescription.doctor_name);
             doctorLocationView.setText(prescription.doctor_location == null ? "-" : prescription.doctor_location);
-            lastReceivedView.setText(prescription.last_date_received == null ? "-" : prescription.last_date_received);
+            lastReceivedView.setText(prescription.last_date_received == null ? "-" : DateCodec.iso(prescription.last_date_received));
             receivedTodayView.setText(prescription.has_received_today ? "Yes" : "No");
 
             openMapsBtn.setEnabled(prescription.doctor_location != null && !prescription.doctor_location.trim().isEmpty());
@@ -97,16 +95,8 @@ public class PrescriptionDetail extends AppCompatActivity {
         startActivity(intent);
     }
 
-    private static String formatDateFullMonth(String isoDate) {
-        try {
-            SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-            Date date = parser.parse(isoDate);
-            SimpleDateFormat formatter = new SimpleDateFormat("MMMM d, yyyy", Locale.US);
-            assert date != null;
-            return formatter.format(date);
-        } catch (Exception e) {
-            return isoDate;
-        }
+    private static String formatDateFullMonth(LocalDate date) {
+        return date == null ? "-" : DateCodec.longDate(date);
     }
 
 }
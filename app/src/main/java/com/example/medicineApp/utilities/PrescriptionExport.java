@@ -1,66 +1,106 @@
 package com.example.medicineApp.utilities;
 
+import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
 import android.provider.MediaStore;
 
-import com.example.medicineApp.database.enums.TimeTermEnum;
+import com.example.medicineApp.database.enums.TimeTermTable;
 import com.example.medicineApp.database.model.PrescriptionModel;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
 
 public final class PrescriptionExport {
 
+    private static final int BUFFER_CHARS = 8 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static final String GZIP_MIME = "application/gzip";
+
+    /** Machine-readable columns, named like the {@link PrescriptionProvider} contract. */
+    static final String[] COLUMNS = {
+            "uid", "short_name", "description", "start_date", "end_date", "time_term_id",
+            "doctor_name", "doctor_location", "is_active", "has_received_today", "last_date_received"
+    };
+
+    public enum Format {
+        TXT("txt", "text/plain"),
+        HTML("html", "text/html"),
+        CSV("csv", "text/csv"),
+        JSONL("jsonl", "application/x-ndjson");
+
+        final String extension;
+        final String mime;
+
+        Format(String extension, String mime) {
+            this.extension = extension;
+            this.mime = mime;
+        }
+
+        public String mime() { return mime; }
+    }
+
     private PrescriptionExport() {}
 
-    public static void exportTxt(Context ctx, List<PrescriptionModel> items) throws Exception {
-        String fileName = "active_prescriptions_" + nowStamp() + ".txt";
-        String body = buildTxt(items);
-        writeToDownloads(ctx, fileName, "text/plain", body);
+    /**
+     * Streams {@code rows} through a buffered UTF-8 writer straight into a new file in
+     * Downloads; nothing is built up in memory. With {@code gzip} the bytes go through a
+     * {@link GZIPOutputStream} and the file gets a {@code .gz} suffix. Must be called off
+     * the main thread.
+     */
+    public static Uri export(Context ctx, ExportRows rows, Format format, boolean gzip) throws IOException {
+        String stamp = nowStamp();
+        String fileName = "active_prescriptions_" + stamp + "." + format.extension + (gzip ? ".gz" : "");
+
+        return writeToDownloads(ctx, fileName, mime(format, gzip), gzip, out -> {
+            switch (format) {
+                case TXT:  writeTxt(out, rows, stamp); break;
+                case HTML: writeHtml(out, rows, stamp); break;
+                case CSV:  writeCsv(out, rows); break;
+                case JSONL: writeJsonLines(out, rows); break;
+            }
+        });
     }
 
-    public static void exportHtml(Context ctx, List<PrescriptionModel> items) throws Exception {
-        String fileName = "active_prescriptions_" + nowStamp() + ".html";
-        String body = buildHtml(items);
-        writeToDownloads(ctx, fileName, "text/html", body);
+    public static String mime(Format format, boolean gzip) {
+        return gzip ? GZIP_MIME : format.mime;
     }
 
-    private static String buildTxt(List<PrescriptionModel> items) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Active Prescriptions (")
-                .append(nowStamp())
+    private static void writeTxt(Writer out, ExportRows rows, String stamp) throws IOException {
+        out.append("Active Prescriptions (")
+                .append(stamp)
                 .append(")\n\n");
 
-        for (PrescriptionModel d : items) {
-            sb.append("#").append(d.uid).append(" · ").append(valueOrDash(d.short_name)).append("\n")
+        while (rows.next()) {
+            PrescriptionModel d = rows.current();
+            out.append("#").append(String.valueOf(d.uid)).append(" · ").append(valueOrDash(d.short_name)).append("\n")
                     .append("  Description : ").append(valueOrDash(d.description)).append("\n")
                     .append("  Dates       : ").append(valueOrDash(d.start_date))
                     .append(" → ")
                     .append(valueOrDash(d.end_date)).append("\n")
-                    .append("  Time term   : ").append(TimeTermEnum.labelForId(d.time_term_id)).append("\n")
+                    .append("  Time term   : ").append(TimeTermTable.labelFor(d.time_term_id)).append("\n")
                     .append("  Doctor      : ").append(valueOrDash(d.doctor_name)).append("\n")
                     .append("  Location    : ").append(valueOrDash(d.doctor_location)).append("\n")
                     .append("  Last taken  : ").append(valueOrDash(d.last_date_received)).append("\n")
                     .append("  Today?      : ").append(d.has_received_today ? "Yes" : "No").append("\n\n");
         }
-
-        return sb.toString();
     }
 
-    private static String buildHtml(List<PrescriptionModel> items) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("<!doctype html><html><head><meta charset='utf-8'>")
+    private static void writeHtml(Writer out, ExportRows rows, String stamp) throws IOException {
+        out.append("<!doctype html><html><head><meta charset='utf-8'>")
                 .append("<title>Active Prescriptions</title>")
                 .append("<meta name='viewport' content='width=device-width, initial-scale=1'>")
                 .append("<style>")
@@ -73,33 +113,36 @@ public final class PrescriptionExport {
                 .append("</style>")
                 .append("</head><body>");
 
-        sb.append("<h1>Active Prescriptions (")
-                .append(nowStamp())
+        out.append("<h1>Active Prescriptions (")
+                .append(stamp)
                 .append(")</h1>");
 
-        for (PrescriptionModel d : items) {
-            sb.append("<div class='card'>")
+        while (rows.next()) {
+            PrescriptionModel d = rows.current();
+            out.append("<div class='card'>")
 
-                    .append("<div><span class='k'>ID: ").append(d.uid).append("</span>")
-                    .append("<strong>").append(escape(valueOrDash(d.short_name))).append("</strong></div>")
+                    .append("<div><span class='k'>ID: ").append(String.valueOf(d.uid)).append("</span>")
+                    .append("<strong>");
+            escapeHtml(out, valueOrDash(d.short_name));
+            out.append("</strong></div>")
 
                     .append("<div><span class='k'>Dates</span>")
-                    .append(escape(valueOrDash(d.start_date))).append(" → ").append(escape(valueOrDash(d.end_date))).append("</div>")
+                    .append(valueOrDash(d.start_date)).append(" → ").append(valueOrDash(d.end_date)).append("</div>")
 
-                    .append("<div><span class='k'>Schedule</span>")
-                    .append(escape(TimeTermEnum.labelForId(d.time_term_id))).append("</div>")
+                    .append("<div><span class='k'>Schedule</span>");
+            escapeHtml(out, TimeTermTable.labelFor(d.time_term_id));
 
-                    .append("<div><span class='k'>Description</span>")
-                    .append(escape(valueOrDash(d.description))).append("</div>")
+            out.append("</div><div><span class='k'>Description</span>");
+            escapeHtml(out, valueOrDash(d.description));
 
-                    .append("<div><span class='k'>Doctor</span>")
-                    .append(escape(valueOrDash(d.doctor_name))).append("</div>")
+            out.append("</div><div><span class='k'>Doctor</span>");
+            escapeHtml(out, valueOrDash(d.doctor_name));
 
-                    .append("<div><span class='k'>Location</span>")
-                    .append(escape(valueOrDash(d.doctor_location))).append("</div>")
+            out.append("</div><div><span class='k'>Location</span>");
+            escapeHtml(out, valueOrDash(d.doctor_location));
 
-                    .append("<div><span class='k'>Last received</span>")
-                    .append(escape(valueOrDash(d.last_date_received))).append("</div>")
+            out.append("</div><div><span class='k'>Last received</span>")
+                    .append(valueOrDash(d.last_date_received)).append("</div>")
 
                     .append("<div><span class='k'>Received today</span>")
                     .append(d.has_received_today ? "Yes" : "No").append("</div>")
@@ -107,51 +150,287 @@ public final class PrescriptionExport {
                     .append("</div>");
         }
 
-        sb.append("</body></html>");
-        return sb.toString();
+        out.append("</body></html>");
     }
 
-    private static void writeToDownloads(Context ctx, String fileName, String mime, String content) throws Exception {
-        Uri uri;
+    /** RFC 4180: header row, CRLF line ends, fields quoted only when they need it. */
+    private static void writeCsv(Writer out, ExportRows rows) throws IOException {
+        writeCsvHeader(out);
+        out.write("\r\n");
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            ContentValues cv = new ContentValues();
-            cv.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
-            cv.put(MediaStore.MediaColumns.MIME_TYPE, mime);
-            cv.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS + "/MedicineApp");
+        while (rows.next()) {
+            writeCsvRow(out, rows.current());
+            out.write("\r\n");
+        }
+    }
 
-            uri = ctx.getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, cv);
-        } else {
+    /** One JSON object per line; null values are written as JSON null. */
+    private static void writeJsonLines(Writer out, ExportRows rows) throws IOException {
+        while (rows.next()) {
+            out.write('{');
+            writeJsonFields(out, rows.current());
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * Changes since the last delta export: every changed row with an {@code upsert} op and its
+     * updated_at, then one {@code delete} record per tombstone. Only the machine-readable
+     * formats make sense here. {@code deleted} is a cursor over (uid, deleted_at).
+     */
+    public static Uri exportDelta(Context ctx, ExportRows changed, Cursor deleted, Format format, boolean gzip) throws IOException {
+        if (format != Format.CSV && format != Format.JSONL)
+            throw new IllegalArgumentException("Delta export needs CSV or JSON Lines");
+
+        String fileName = "prescription_changes_" + nowStamp() + "." + format.extension + (gzip ? ".gz" : "");
+        int uid = deleted.getColumnIndexOrThrow("uid");
+        int deletedAt = deleted.getColumnIndexOrThrow("deleted_at");
+
+        return writeToDownloads(ctx, fileName, mime(format, gzip), gzip, out -> {
+            if (format == Format.CSV) {
+                out.write("op,");
+                writeCsvHeader(out);
+                out.write(",updated_at\r\n");
+
+                while (changed.next()) {
+                    out.write("upsert,");
+                    writeCsvRow(out, changed.current());
+                    out.write(',');
+                    out.write(Long.toString(changed.current().updated_at));
+                    out.write("\r\n");
+                }
+                while (deleted.moveToNext()) {
+                    out.write("delete,");
+                    out.write(Integer.toString(deleted.getInt(uid)));
+                    for (int i = 1; i < COLUMNS.length; i++) out.write(',');
+                    out.write(',');
+                    out.write(Long.toString(deleted.getLong(deletedAt)));
+                    out.write("\r\n");
+                }
+            } else {
+                while (changed.next()) {
+                    out.write("{\"op\":\"upsert\",");
+                    writeJsonFields(out, changed.current());
+                    out.write(",\"updated_at\":");
+                    out.write(Long.toString(changed.current().updated_at));
+                    out.write("}\n");
+                }
+                while (deleted.moveToNext()) {
+                    out.write("{\"op\":\"delete\",\"uid\":");
+                    out.write(Integer.toString(deleted.getInt(uid)));
+                    out.write(",\"deleted_at\":");
+                    out.write(Long.toString(deleted.getLong(deletedAt)));
+                    out.write("}\n");
+                }
+            }
+        });
+    }
+
+    private static void writeCsvHeader(Writer out) throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(COLUMNS[i]);
+        }
+    }
+
+    private static void writeCsvRow(Writer out, PrescriptionModel d) throws IOException {
+        out.write(Integer.toString(d.uid));
+        out.write(',');
+        writeCsvField(out, d.short_name);
+        out.write(',');
+        writeCsvField(out, d.description);
+        out.write(',');
+        writeDate(out, d.start_date);
+        out.write(',');
+        writeDate(out, d.end_date);
+        out.write(',');
+        out.write(Integer.toString(d.time_term_id));
+        out.write(',');
+        writeCsvField(out, d.doctor_name);
+        out.write(',');
+        writeCsvField(out, d.doctor_location);
+        out.write(',');
+        out.write(d.is_active ? "1" : "0");
+        out.write(',');
+        out.write(d.has_received_today ? "1" : "0");
+        out.write(',');
+        writeDate(out, d.last_date_received);
+    }
+
+    /** The object members without the surrounding braces. */
+    private static void writeJsonFields(Writer out, PrescriptionModel d) throws IOException {
+        out.write("\"uid\":");
+        out.write(Integer.toString(d.uid));
+        out.write(",\"short_name\":");
+        writeJsonString(out, d.short_name);
+        out.write(",\"description\":");
+        writeJsonString(out, d.description);
+        out.write(",\"start_date\":");
+        writeJsonDate(out, d.start_date);
+        out.write(",\"end_date\":");
+        writeJsonDate(out, d.end_date);
+        out.write(",\"time_term_id\":");
+        out.write(Integer.toString(d.time_term_id));
+        out.write(",\"doctor_name\":");
+        writeJsonString(out, d.doctor_name);
+        out.write(",\"doctor_location\":");
+        writeJsonString(out, d.doctor_location);
+        out.write(",\"is_active\":");
+        out.write(d.is_active ? "true" : "false");
+        out.write(",\"has_received_today\":");
+        out.write(d.has_received_today ? "true" : "false");
+        out.write(",\"last_date_received\":");
+        writeJsonDate(out, d.last_date_received);
+    }
+
+    static Uri writeToDownloads(Context ctx, String fileName, String mime, boolean gzip, BodyWriter body) throws IOException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
             File downloads = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
             File file = new File(downloads, fileName);
             try (OutputStream os = new FileOutputStream(file)) {
-                os.write(content.getBytes(StandardCharsets.UTF_8));
+                writeBody(os, gzip, body);
+            } catch (IOException | RuntimeException e) {
+                // Same as the MediaStore branch: no truncated file is left behind.
+                file.delete();
+                throw e;
             }
-            Uri.fromFile(file);
-            return;
+            return Uri.fromFile(file);
         }
 
+        ContentResolver resolver = ctx.getContentResolver();
+        ContentValues cv = new ContentValues();
+        cv.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
+        cv.put(MediaStore.MediaColumns.MIME_TYPE, mime);
+        cv.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS + "/MedicineApp");
+        // Hidden from other apps until the stream is complete.
+        cv.put(MediaStore.MediaColumns.IS_PENDING, 1);
+
+        Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, cv);
         if (uri == null) throw new IllegalStateException("Failed to create file");
 
-        try (OutputStream os = ctx.getContentResolver().openOutputStream(uri)) {
+        try (OutputStream os = resolver.openOutputStream(uri)) {
             if (os == null) throw new IllegalStateException("Cannot open output stream");
-            os.write(content.getBytes(StandardCharsets.UTF_8));
+            writeBody(os, gzip, body);
+        } catch (IOException | RuntimeException e) {
+            resolver.delete(uri, null, null);
+            throw e;
         }
+
+        cv.clear();
+        cv.put(MediaStore.MediaColumns.IS_PENDING, 0);
+        resolver.update(uri, cv, null, null);
+        return uri;
+    }
+
+    private static void writeBody(OutputStream os, boolean gzip, BodyWriter body) throws IOException {
+        GZIPOutputStream zip = gzip ? new GZIPOutputStream(os, BUFFER_CHARS) : null;
+        Writer out = new BufferedWriter(new OutputStreamWriter(zip != null ? zip : os, StandardCharsets.UTF_8), BUFFER_CHARS);
+        body.write(out);
+        out.flush();
+        // Writes the gzip trailer; the caller still owns and closes os.
+        if (zip != null) zip.finish();
     }
 
     private static String valueOrDash(String s) {
         return (s == null || s.trim().isEmpty()) ? "-" : s;
     }
 
-    private static String nowStamp() {
-        return new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+    private static String valueOrDash(LocalDate d) {
+        return d == null ? "-" : DateCodec.iso(d);
+    }
+
+    static String nowStamp() {
+        return DateCodec.fileStamp();
     }
 
-    private static String escape(String s) {
-        return s.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#39;");
+    /** Copies runs of plain characters straight through and only substitutes the specials. */
+    private static void escapeHtml(Writer out, String s) throws IOException {
+        int start = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            String entity;
+            switch (s.charAt(i)) {
+                case '&':  entity = "&amp;"; break;
+                case '<':  entity = "&lt;"; break;
+                case '>':  entity = "&gt;"; break;
+                case '"':  entity = "&quot;"; break;
+                case '\'': entity = "&#39;"; break;
+                default: continue;
+            }
+            if (i > start) out.write(s, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        if (start < s.length()) out.write(s, start, s.length() - start);
+    }
+
+    static void writeCsvField(Writer out, String s) throws IOException {
+        if (s == null) return;
+
+        boolean quote = false;
+        for (int i = 0, n = s.length(); i < n && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+
+        out.write('"');
+        int start = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            if (s.charAt(i) != '"') continue;
+            out.write(s, start, i + 1 - start);
+            out.write('"');
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+        out.write('"');
     }
+
+    private static void writeJsonString(Writer out, String s) throws IOException {
+        if (s == null) {
+            out.write("null");
+            return;
+        }
+
+        out.write('"');
+        int start = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            if (i > start) out.write(s, start, i - start);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    out.write("\\u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        if (start < s.length()) out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+
+    private static void writeDate(Writer out, LocalDate d) throws IOException {
+        if (d != null) out.write(DateCodec.iso(d));
+    }
+
+    private static void writeJsonDate(Writer out, LocalDate d) throws IOException {
+        if (d == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        out.write(DateCodec.iso(d));
+        out.write('"');
+    }
+
+    interface BodyWriter { void write(Writer out) throws IOException; }
 }
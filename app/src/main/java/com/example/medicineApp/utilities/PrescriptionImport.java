@@ -0,0 +1,522 @@
+package com.example.medicineApp.utilities;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.example.medicineApp.database.model.PrescriptionModel;
+import com.example.medicineApp.database.repo.PrescriptionRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads CSV or JSON Lines, plain or gzip-compressed, one record at a time and inserts the
+ * rows in fixed-size batches, one transaction per batch. Column names are the ones
+ * {@link PrescriptionExport} writes, so an export imports back as-is; uid is ignored and
+ * every row gets a new id. Must be called off the main thread.
+ */
+public final class PrescriptionImport {
+
+    public static final int BATCH_SIZE = 500;
+
+    private static final int MAX_REPORTED_REJECTS = 1000;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int SNIFF_BYTES = 64;
+    /** Longest CSV field kept; an unclosed quote would otherwise buffer the rest of the file. */
+    private static final int MAX_FIELD_CHARS = 16 * 1024;
+
+    private static final int SHORT_NAME         = indexOf("short_name");
+    private static final int DESCRIPTION        = indexOf("description");
+    private static final int START_DATE         = indexOf("start_date");
+    private static final int END_DATE           = indexOf("end_date");
+    private static final int TIME_TERM_ID       = indexOf("time_term_id");
+    private static final int DOCTOR_NAME        = indexOf("doctor_name");
+    private static final int DOCTOR_LOCATION    = indexOf("doctor_location");
+    private static final int HAS_RECEIVED_TODAY = indexOf("has_received_today");
+    private static final int LAST_DATE_RECEIVED = indexOf("last_date_received");
+
+    public interface ProgressListener {
+        /** Called after each committed batch. {@code totalBytes} is -1 when the size is unknown. */
+        void onBatch(long bytesRead, long totalBytes, int imported, int rejected) throws IOException;
+    }
+
+    public static final class Result {
+        public final int imported;
+        public final int rejected;
+        /** CSV of rejected lines and reasons in Downloads, or null when nothing was rejected. */
+        @Nullable public final Uri report;
+
+        Result(int imported, int rejected, @Nullable Uri report) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.report = report;
+        }
+    }
+
+    private PrescriptionImport() {}
+
+    /**
+     * Batches already committed stay in the database if this throws part way through,
+     * including when {@code listener} throws to cancel.
+     */
+    public static Result run(Context ctx, Uri source, PrescriptionRepository repo, ProgressListener listener) throws IOException {
+        Set<Integer> termIds = new HashSet<>(repo.timeTermIdsSync());
+        LocalDate today = LocalDate.now();
+        ContentResolver resolver = ctx.getContentResolver();
+
+        try (AssetFileDescriptor fd = resolver.openAssetFileDescriptor(source, "r")) {
+            if (fd == null) throw new FileNotFoundException("Cannot open " + source);
+
+            long total = fd.getLength();
+            CountingInputStream counted = new CountingInputStream(fd.createInputStream());
+
+            try (RecordReader records = open(counted)) {
+                String[] fields = new String[PrescriptionExport.COLUMNS.length];
+                List<PrescriptionModel> batch = new ArrayList<>(BATCH_SIZE);
+                List<Reject> rejects = new ArrayList<>();
+                int imported = 0;
+                int rejected = 0;
+
+                while (true) {
+                    try {
+                        if (!records.next(fields)) break;
+                        batch.add(toModel(fields, termIds, today));
+                    } catch (IllegalArgumentException | DateTimeException e) {
+                        rejected++;
+                        if (rejects.size() < MAX_REPORTED_REJECTS)
+                            rejects.add(new Reject(records.line(), e.getMessage(), fields[SHORT_NAME]));
+                        continue;
+                    }
+
+                    if (batch.size() == BATCH_SIZE) {
+                        imported += flush(repo, batch);
+                        listener.onBatch(counted.count, total, imported, rejected);
+                    }
+                }
+
+                imported += flush(repo, batch);
+                listener.onBatch(counted.count, total, imported, rejected);
+
+                Uri report = rejected > 0 ? writeReport(ctx, rejects, rejected) : null;
+                return new Result(imported, rejected, report);
+            }
+        }
+    }
+
+    private static int flush(PrescriptionRepository repo, List<PrescriptionModel> batch) {
+        int n = batch.size();
+        if (n == 0) return 0;
+
+        repo.addBatchSync(batch);
+        batch.clear();
+        return n;
+    }
+
+    /** Same rules as a prescription added by hand, plus a time term that actually exists. */
+    private static PrescriptionModel toModel(String[] f, Set<Integer> termIds, LocalDate today) {
+        String term = f[TIME_TERM_ID];
+        if (term == null) throw new IllegalArgumentException("time_term_id required");
+
+        int termId = Integer.parseInt(term.trim());
+        if (!termIds.contains(termId)) throw new IllegalArgumentException("Unknown time_term_id " + termId);
+
+        PrescriptionModel p = PrescriptionModel.validated(
+                f[SHORT_NAME],
+                f[DESCRIPTION],
+                DateCodec.parseIso(f[START_DATE]),
+                DateCodec.parseIso(f[END_DATE]),
+                termId,
+                f[DOCTOR_NAME],
+                f[DOCTOR_LOCATION],
+                today
+        );
+        p.last_date_received = DateCodec.parseIso(f[LAST_DATE_RECEIVED]);
+        // A flag carried over from another day would only be reset at the next recompute.
+        p.has_received_today = today.equals(p.last_date_received) && parseBool(f[HAS_RECEIVED_TODAY]);
+        return p;
+    }
+
+    private static boolean parseBool(@Nullable String s) {
+        return s != null && (s.equals("1") || s.equalsIgnoreCase("true"));
+    }
+
+    private static Uri writeReport(Context ctx, List<Reject> rejects, int rejected) throws IOException {
+        String fileName = "import_rejects_" + PrescriptionExport.nowStamp() + ".csv";
+
+        return PrescriptionExport.writeToDownloads(ctx, fileName, "text/csv", false, out -> {
+            out.write("line,reason,short_name\r\n");
+            for (Reject r : rejects) {
+                out.write(Integer.toString(r.line));
+                out.write(',');
+                PrescriptionExport.writeCsvField(out, r.reason);
+                out.write(',');
+                PrescriptionExport.writeCsvField(out, r.shortName);
+                out.write("\r\n");
+            }
+            if (rejected > rejects.size()) {
+                out.write(",");
+                out.write((rejected - rejects.size()) + " more rejected rows not listed");
+                out.write(",\r\n");
+            }
+        });
+    }
+
+    /** Unwraps gzip by its magic bytes, skips a UTF-8 BOM and picks JSON Lines when the first record starts with '{'. */
+    private static RecordReader open(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, BUFFER_SIZE);
+        in.mark(2);
+        boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+
+        BufferedInputStream body = gzip
+                ? new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE)
+                : in;
+
+        byte[] head = new byte[SNIFF_BYTES];
+        body.mark(SNIFF_BYTES);
+        int n = Math.max(body.read(head), 0);
+        body.reset();
+
+        boolean bom = n >= 3 && (head[0] & 0xff) == 0xef && (head[1] & 0xff) == 0xbb && (head[2] & 0xff) == 0xbf;
+        int i = bom ? 3 : 0;
+        while (i < n && Character.isWhitespace(head[i])) i++;
+        if (bom) for (int k = 0; k < 3; k++) body.read();
+
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+        return i < n && head[i] == '{' ? new JsonLines(reader) : new CsvRecords(reader);
+    }
+
+    private static int indexOf(String column) {
+        String[] columns = PrescriptionExport.COLUMNS;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) return i;
+        }
+        return -1;
+    }
+
+    private static final class Reject {
+        final int line;
+        final String reason;
+        @Nullable final String shortName;
+
+        Reject(int line, String reason, @Nullable String shortName) {
+            this.line = line;
+            this.reason = reason;
+            this.shortName = shortName;
+        }
+    }
+
+    private interface RecordReader extends Closeable {
+        /** Fills {@code fields} in {@link PrescriptionExport#COLUMNS} order; false at end of input. */
+        boolean next(String[] fields) throws IOException;
+
+        /** 1-based line the last record started on. */
+        int line();
+    }
+
+    /** RFC 4180 with a header row; quoted fields may span lines, empty fields read as null. */
+    private static final class CsvRecords implements RecordReader {
+        private final Reader in;
+        private final char[] buf = new char[BUFFER_SIZE];
+        private final StringBuilder field = new StringBuilder();
+        private final List<String> row = new ArrayList<>();
+        private final int[] target;
+        private int pos;
+        private int len;
+        private int line = 1;
+        private int recordLine;
+
+        CsvRecords(Reader in) throws IOException {
+            this.in = in;
+            if (!readRow(row)) throw new IOException("Empty file");
+
+            target = new int[row.size()];
+            for (int i = 0; i < target.length; i++) {
+                String name = row.get(i);
+                target[i] = name == null ? -1 : indexOf(name.trim());
+            }
+            for (int required : new int[]{SHORT_NAME, START_DATE, END_DATE, TIME_TERM_ID}) {
+                if (!contains(target, required))
+                    throw new IOException("Missing column " + PrescriptionExport.COLUMNS[required]);
+            }
+        }
+
+        @Override
+        public boolean next(String[] fields) throws IOException {
+            Arrays.fill(fields, null);
+            do {
+                if (!readRow(row)) return false;
+            } while (row.size() == 1 && row.get(0) == null);
+
+            for (int i = 0, n = Math.min(row.size(), target.length); i < n; i++) {
+                if (target[i] >= 0) fields[target[i]] = row.get(i);
+            }
+            return true;
+        }
+
+        @Override
+        public int line() { return recordLine; }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+
+        private boolean readRow(List<String> out) throws IOException {
+            out.clear();
+            field.setLength(0);
+            recordLine = line;
+
+            int c = read();
+            if (c == -1) return false;
+
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new IllegalArgumentException("Unterminated quoted field");
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    append(c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    endField(out);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    endField(out);
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n' && next != -1) pos--;
+                    }
+                    if (c != -1) line++;
+                    return true;
+                } else {
+                    append(c);
+                }
+                c = read();
+            }
+        }
+
+        /** Rejects the record and resumes at the next line once a field outgrows the cap. */
+        private void append(int c) throws IOException {
+            if (field.length() < MAX_FIELD_CHARS) {
+                field.append((char) c);
+                return;
+            }
+
+            field.setLength(0);
+            // A newline here was already consumed and counted by the caller.
+            if (c != '\n') {
+                do c = read(); while (c != '\n' && c != -1);
+                if (c == '\n') line++;
+            }
+            throw new IllegalArgumentException("Field longer than " + MAX_FIELD_CHARS + " characters");
+        }
+
+        private void endField(List<String> out) {
+            out.add(field.length() == 0 ? null : field.toString());
+            field.setLength(0);
+        }
+
+        private int read() throws IOException {
+            if (pos == len) {
+                len = Math.max(in.read(buf, 0, buf.length), 0);
+                pos = 0;
+                if (len == 0) return -1;
+            }
+            return buf[pos++];
+        }
+
+        private static boolean contains(int[] values, int value) {
+            for (int v : values) if (v == value) return true;
+            return false;
+        }
+    }
+
+    /** One flat JSON object per line; nested values are rejected, unknown keys ignored. */
+    private static final class JsonLines implements RecordReader {
+        private final BufferedReader in;
+        private final StringBuilder sb = new StringBuilder();
+        private String s;
+        private int i;
+        private int line;
+
+        JsonLines(Reader in) {
+            this.in = new BufferedReader(in, BUFFER_SIZE);
+        }
+
+        @Override
+        public boolean next(String[] fields) throws IOException {
+            Arrays.fill(fields, null);
+            do {
+                s = in.readLine();
+                line++;
+                if (s == null) return false;
+            } while (isBlank(s));
+
+            i = 0;
+            expect('{');
+            skipWs();
+            if (i < s.length() && s.charAt(i) == '}') {
+                i++;
+            } else {
+                while (true) {
+                    String key = parseString();
+                    expect(':');
+                    String value = parseValue();
+
+                    int idx = indexOf(key);
+                    if (idx >= 0) fields[idx] = value;
+
+                    skipWs();
+                    char c = take();
+                    if (c == '}') break;
+                    if (c != ',') throw malformed();
+                }
+            }
+            skipWs();
+            if (i != s.length()) throw malformed();
+            return true;
+        }
+
+        @Override
+        public int line() { return line; }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+
+        /** Numbers and booleans come back as their literal text; null as null. */
+        @Nullable
+        private String parseValue() {
+            skipWs();
+            if (i >= s.length()) throw malformed();
+
+            char c = s.charAt(i);
+            if (c == '"') return parseString();
+            if (s.startsWith("null", i)) { i += 4; return null; }
+            if (s.startsWith("true", i)) { i += 4; return "true"; }
+            if (s.startsWith("false", i)) { i += 5; return "false"; }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                int start = i;
+                while (i < s.length() && "+-.eE0123456789".indexOf(s.charAt(i)) >= 0) i++;
+                return s.substring(start, i);
+            }
+            throw new IllegalArgumentException("Unsupported JSON value at column " + (i + 1));
+        }
+
+        private String parseString() {
+            expect('"');
+            int start = i;
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (c == '"') return s.substring(start, i++);
+                if (c == '\\') break;
+                i++;
+            }
+
+            sb.setLength(0);
+            sb.append(s, start, i);
+            while (true) {
+                char c = take();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = take();
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (i + 4 > s.length()) throw malformed();
+                        sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                        i += 4;
+                        break;
+                    default: throw malformed();
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            skipWs();
+            if (take() != expected) throw malformed();
+        }
+
+        private char take() {
+            if (i >= s.length()) throw malformed();
+            return s.charAt(i++);
+        }
+
+        private void skipWs() {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        }
+
+        private IllegalArgumentException malformed() {
+            return new IllegalArgumentException("Malformed JSON at column " + (i + 1));
+        }
+
+        private static boolean isBlank(String s) {
+            for (int k = 0; k < s.length(); k++) {
+                if (!Character.isWhitespace(s.charAt(k))) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.medicineApp.utilities;
+
+import android.content.Context;
+import android.content.Intent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.medicineApp.R;
+import com.example.medicineApp.ui.PrescriptionRow;
+
+import java.util.List;
+
+/**
+ * Dashboard list; only the loaded pages are kept in memory. Its AsyncPagingDataDiffer diffs
+ * on a background dispatcher and changed rows rebind only the parts named in the payload.
+ */
+public class PrescriptionPagingAdapter extends PagingDataAdapter<PrescriptionRow, PrescriptionPagingAdapter.PrescriptionVH> {
+
+    public PrescriptionPagingAdapter() { super(DIFF); }
+
+    @NonNull @Override
+    public PrescriptionVH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.prescription_line, parent, false);
+
+        return new PrescriptionVH(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PrescriptionVH holder, int position) {
+        PrescriptionRow row = getItem(position);
+        if (row != null) holder.bind(row, PrescriptionRow.ALL);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PrescriptionVH holder, int position, @NonNull List<Object> payloads) {
+        PrescriptionRow row = getItem(position);
+        if (row != null) holder.bind(row, changes(payloads));
+    }
+
+    /** DiffUtil payload naming the parts of a row that changed, as PrescriptionRow bits. */
+    static final class RowChange {
+        final int changes;
+
+        RowChange(int changes) { this.changes = changes; }
+    }
+
+    /** Merges queued payloads; an empty list or an unknown payload means a full bind. */
+    static int changes(@NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) return PrescriptionRow.ALL;
+
+        int changes = 0;
+        for (Object p : payloads) {
+            if (!(p instanceof RowChange)) return PrescriptionRow.ALL;
+            changes |= ((RowChange) p).changes;
+        }
+        return changes;
+    }
+
+    public static class PrescriptionVH extends RecyclerView.ViewHolder {
+        private final TextView idView, titleView, scheduleView, datesView, subtitleView;
+        private final ImageView takenView;
+        private int uid;
+
+        PrescriptionVH(@NonNull View itemView) {
+            super(itemView);
+            idView       = itemView.findViewById(R.id.idPill);
+            titleView    = itemView.findViewById(R.id.title);
+            scheduleView = itemView.findViewById(R.id.pillSchedule);
+            datesView    = itemView.findViewById(R.id.dates);
+            subtitleView = itemView.findViewById(R.id.subtitle);
+            takenView    = itemView.findViewById(R.id.takenToday);
+
+            // One listener per holder; it reads whichever uid was bound last.
+            itemView.setOnClickListener(v -> {
+                Context c = v.getContext();
+                Intent i = new Intent(c, PrescriptionDetail.class);
+                i.putExtra("uid", uid);
+                c.startActivity(i);
+            });
+        }
+
+        /** Only touches the views named in {@code changes}; a full bind passes PrescriptionRow.ALL. */
+        void bind(@NonNull PrescriptionRow row, int changes) {
+            if (changes == PrescriptionRow.ALL) {
+                uid = row.uid;
+                idView.setText(row.idLabel);
+            }
+            if ((changes & PrescriptionRow.TITLE) != 0)    titleView.setText(row.title);
+            if ((changes & PrescriptionRow.SCHEDULE) != 0) scheduleView.setText(row.schedule);
+            if ((changes & PrescriptionRow.DATES) != 0)    datesView.setText(row.dates);
+            if ((changes & PrescriptionRow.SUBTITLE) != 0 && subtitleView != null) subtitleView.setText(row.subtitle);
+            if ((changes & PrescriptionRow.TAKEN) != 0)    takenView.setVisibility(row.takenToday ? View.VISIBLE : View.GONE);
+        }
+    }
+
+    static final DiffUtil.ItemCallback<PrescriptionRow> DIFF = new DiffUtil.ItemCallback<>() {
+        @Override public boolean areItemsTheSame(@NonNull PrescriptionRow o, @NonNull PrescriptionRow n) { return o.uid == n.uid; }
+        @Override public boolean areContentsTheSame(@NonNull PrescriptionRow o, @NonNull PrescriptionRow n) { return o.equals(n); }
+        @Override public Object getChangePayload(@NonNull PrescriptionRow o, @NonNull PrescriptionRow n) { return new RowChange(o.changesTo(n)); }
+    };
+}
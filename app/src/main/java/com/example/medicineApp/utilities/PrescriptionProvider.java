@@ -1,25 +1,44 @@
 package com.example.medicineApp.utilities;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.SQLException;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQueryBuilder;
 
 import com.example.medicineApp.database.AppDB;
 import com.example.medicineApp.database.dao.PrescriptionDao;
 import com.example.medicineApp.database.model.PrescriptionModel;
-
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
-
+import com.example.medicineApp.database.model.TimeTermCount;
+import com.example.medicineApp.database.repo.PrescriptionRepository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Room is thread safe, so every call runs its DAO work directly on the calling binder
+// thread: concurrent clients proceed in parallel and exceptions reach the caller.
 public class PrescriptionProvider extends ContentProvider {
 
     private static final String AUTHORITY   = "com.example.medicineApp.provider";
@@ -27,6 +46,25 @@ public class PrescriptionProvider extends ContentProvider {
 
     public static final Uri CONTENT_URI     = Uri.parse("content://" + AUTHORITY + "/" + TABLE_NAME);
 
+    /**
+     * Keyset paging: only rows past this uid, in the uid order given by the sort order
+     * ("uid ASC" when none is set). Pass the last uid of the previous page, as an int or a long.
+     */
+    public static final String QUERY_ARG_AFTER_UID = AUTHORITY + ".arg.AFTER_UID";
+
+    // call() methods: small aggregate Bundles computed in SQL, for clients that only need numbers.
+    public static final String METHOD_ACTIVE_COUNT         = "active_count";
+    public static final String METHOD_TAKEN_TODAY_COUNT    = "taken_today_count";
+    public static final String METHOD_TIME_TERM_BREAKDOWN  = "time_term_breakdown";
+    public static final String METHOD_STATS                = "stats";
+
+    public static final String KEY_ACTIVE_COUNT      = "active_count";
+    public static final String KEY_TAKEN_TODAY_COUNT = "taken_today_count";
+    /** Parallel int[] extras, one entry per time term with active rows. */
+    public static final String KEY_TIME_TERM_IDS     = "time_term_ids";
+    public static final String KEY_TIME_TERM_ACTIVE  = "time_term_active";
+    public static final String KEY_TIME_TERM_TAKEN   = "time_term_taken";
+
     private static final int PRESCRIPTIONS   = 1;
     private static final int PRESCRIPTION_ID = 2;
 
@@ -37,13 +75,48 @@ public class PrescriptionProvider extends ContentProvider {
         URI_MATCHER.addURI(AUTHORITY, TABLE_NAME + "/#", PRESCRIPTION_ID);
     }
 
+    /**
+     * What clients query against: dates keep their ISO string contract under the original
+     * names, and the raw epoch-day columns are exposed for index-friendly range filters.
+     * SQLite flattens this subquery, so filters on stored columns still use their indexes.
+     */
+    private static final String CONTRACT_TABLE = "(SELECT uid, short_name, description, " +
+            "date(start_day * 86400, 'unixepoch') AS start_date, " +
+            "date(end_day * 86400, 'unixepoch') AS end_date, " +
+            "time_term_id, doctor_name, doctor_location, is_active, has_received_today, " +
+            "date(last_received_day * 86400, 'unixepoch') AS last_date_received, " +
+            "start_day, end_day, last_received_day " +
+            "FROM " + TABLE_NAME + ")";
+
+    private static final String[] DEFAULT_PROJECTION = {
+            "uid", "short_name", "description", "start_date", "end_date", "time_term_id",
+            "doctor_name", "doctor_location", "is_active", "has_received_today", "last_date_received"
+    };
+
+    private static final Set<String> COLUMNS = new HashSet<>(Arrays.asList(DEFAULT_PROJECTION));
+
+    private static final String[] DATE_KEYS = {"start_date", "end_date", "last_date_received"};
+
+    static {
+        COLUMNS.addAll(Arrays.asList("start_day", "end_day", "last_received_day"));
+    }
+
+    private AppDB db;
     private PrescriptionDao prescriptionDAO;
+    private PrescriptionRepository repo;
+    private ChangeCoalescer changes;
+
+    /** Non-null while the current binder thread is inside applyBatch; holds URIs until commit. */
+    private final ThreadLocal<Set<Uri>> batchChanges = new ThreadLocal<>();
 
     @Override
     public boolean onCreate() {
         Context ctx = getContext();
         if (ctx != null) {
-            prescriptionDAO = AppDB.get(ctx).prescriptionDao();
+            db = AppDB.get(ctx);
+            prescriptionDAO = db.prescriptionDao();
+            repo = PrescriptionRepository.get(ctx);
+            changes = new ChangeCoalescer(ctx.getContentResolver(), CONTENT_URI);
             return true;
         }
         return false;
@@ -58,33 +131,118 @@ public class PrescriptionProvider extends ContentProvider {
             @Nullable String[] selectionArgs,
             @Nullable String sortOrder) {
 
-        final int match = URI_MATCHER.match(uri);
-        AtomicReference<Cursor> cursorRef = new AtomicReference<>();
-        CountDownLatch latch = new CountDownLatch(1);
+        Cursor cursor = isPlainItem(uri, selection)
+                ? cachedItem(uri, projection)
+                : db.query(buildQuery(uri, projection, selection, selectionArgs, sortOrder, null, null));
+        return withNotificationUri(cursor, uri);
+    }
 
-        AppDB.io().execute(() -> {
-            try {
-                switch (match) {
-                    case PRESCRIPTIONS:
-                        cursorRef.set(prescriptionDAO.getAllAsCursor());
-                        break;
-                    case PRESCRIPTION_ID:
-                        int id = (int) ContentUris.parseId(uri);
-                        cursorRef.set(prescriptionDAO.getByIdAsCursor(id));
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unknown URI in query: " + uri);
-                }
-            } finally {
-                latch.countDown();
-            }
-        });
+    /** Honors QUERY_ARG_LIMIT / QUERY_ARG_OFFSET, {@link #QUERY_ARG_AFTER_UID} and cancellation. */
+    @Nullable
+    @Override
+    public Cursor query(
+            @NonNull Uri uri,
+            @Nullable String[] projection,
+            @Nullable Bundle queryArgs,
+            @Nullable CancellationSignal cancellationSignal) {
+
+        Bundle args = queryArgs != null ? queryArgs : Bundle.EMPTY;
+        if (isPlainItem(uri, args.getString(ContentResolver.QUERY_ARG_SQL_SELECTION)) &&
+                !args.containsKey(QUERY_ARG_AFTER_UID) &&
+                !args.containsKey(ContentResolver.QUERY_ARG_LIMIT) &&
+                !args.containsKey(ContentResolver.QUERY_ARG_OFFSET)) {
+            return withNotificationUri(cachedItem(uri, projection), uri);
+        }
 
-        try {
-            latch.await();
-        } catch (InterruptedException ignored) {}
-        Cursor cursor = cursorRef.get();
+        String sortOrder = args.getString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER);
+        List<String> honored = new ArrayList<>();
+
+        Long afterUid = null;
+        if (args.containsKey(QUERY_ARG_AFTER_UID)) {
+            afterUid = afterUid(args);
+            sortOrder = keysetSortOrder(sortOrder);
+            honored.add(QUERY_ARG_AFTER_UID);
+        }
+
+        String limit = null;
+        int count  = args.getInt(ContentResolver.QUERY_ARG_LIMIT, -1);
+        int offset = args.getInt(ContentResolver.QUERY_ARG_OFFSET, -1);
+        if (count >= 0 || offset > 0) {
+            // SQLite only takes an offset together with a limit, as "offset, count".
+            String rows = count >= 0 ? String.valueOf(count) : String.valueOf(Long.MAX_VALUE);
+            limit = offset > 0 ? offset + "," + rows : rows;
+            if (count >= 0) honored.add(ContentResolver.QUERY_ARG_LIMIT);
+            if (offset > 0) honored.add(ContentResolver.QUERY_ARG_OFFSET);
+        }
+
+        SupportSQLiteQuery query = buildQuery(
+                uri,
+                projection,
+                args.getString(ContentResolver.QUERY_ARG_SQL_SELECTION),
+                args.getStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS),
+                sortOrder,
+                afterUid,
+                limit);
+
+        Cursor cursor = db.query(query, cancellationSignal);
+
+        if (cursor != null && !honored.isEmpty()) {
+            Bundle extras = new Bundle();
+            extras.putStringArray(ContentResolver.EXTRA_HONORED_ARGS, honored.toArray(new String[0]));
+            cursor.setExtras(extras);
+        }
+        return withNotificationUri(cursor, uri);
+    }
 
+    /** Bundle.getLong returns 0 for a value put with putInt, which would restart paging from the top. */
+    private static long afterUid(Bundle args) {
+        Object value = args.get(QUERY_ARG_AFTER_UID);
+        if (value instanceof Number) return ((Number) value).longValue();
+        throw new IllegalArgumentException(QUERY_ARG_AFTER_UID + " must be a number: " + value);
+    }
+
+    /** A bare item URI: at most one row, so sort order does not matter. */
+    private static boolean isPlainItem(@NonNull Uri uri, @Nullable String selection) {
+        return URI_MATCHER.match(uri) == PRESCRIPTION_ID && (selection == null || selection.trim().isEmpty());
+    }
+
+    /** Item lookups go through the repository's uid cache instead of SQLite. */
+    private Cursor cachedItem(@NonNull Uri uri, @Nullable String[] projection) {
+        String[] columns = checkProjection(projection);
+        MatrixCursor cursor = new MatrixCursor(columns, 1);
+
+        PrescriptionModel p = repo.getByIdSync((int) ContentUris.parseId(uri));
+        if (p == null) return cursor;
+
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) row[i] = contractValue(p, columns[i]);
+        cursor.addRow(row);
+        return cursor;
+    }
+
+    /** Same values and types CONTRACT_TABLE would return for the column. */
+    @Nullable
+    private static Object contractValue(PrescriptionModel p, String column) {
+        switch (column) {
+            case "uid":                return p.uid;
+            case "short_name":         return p.short_name;
+            case "description":        return p.description;
+            case "start_date":         return p.start_date == null ? null : DateCodec.iso(p.start_date);
+            case "end_date":           return p.end_date == null ? null : DateCodec.iso(p.end_date);
+            case "time_term_id":       return p.time_term_id;
+            case "doctor_name":        return p.doctor_name;
+            case "doctor_location":    return p.doctor_location;
+            case "is_active":          return p.is_active ? 1 : 0;
+            case "has_received_today": return p.has_received_today ? 1 : 0;
+            case "last_date_received": return p.last_date_received == null ? null : DateCodec.iso(p.last_date_received);
+            case "start_day":          return p.start_date == null ? null : p.start_date.toEpochDay();
+            case "end_day":            return p.end_date == null ? null : p.end_date.toEpochDay();
+            case "last_received_day":  return p.last_date_received == null ? null : p.last_date_received.toEpochDay();
+            default: throw new IllegalArgumentException("Unknown column in projection: " + column);
+        }
+    }
+
+    private Cursor withNotificationUri(@Nullable Cursor cursor, @NonNull Uri uri) {
         if (cursor != null) {
             Context ctx = getContext();
             if (ctx != null) {
@@ -94,6 +252,184 @@ public class PrescriptionProvider extends ContentProvider {
         return cursor;
     }
 
+    private static SupportSQLiteQuery buildQuery(
+            @NonNull Uri uri,
+            @Nullable String[] projection,
+            @Nullable String selection,
+            @Nullable String[] selectionArgs,
+            @Nullable String sortOrder,
+            @Nullable Long afterUid,
+            @Nullable String limit) {
+
+        List<Object> args = new ArrayList<>();
+        List<String> where = new ArrayList<>();
+
+        switch (URI_MATCHER.match(uri)) {
+            case PRESCRIPTIONS:
+                break;
+            case PRESCRIPTION_ID:
+                where.add("uid = ?");
+                args.add(ContentUris.parseId(uri));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown URI in query: " + uri);
+        }
+
+        if (selection != null && !selection.trim().isEmpty()) {
+            where.add("(" + checkSelection(selection) + ")");
+            if (selectionArgs != null) Collections.addAll(args, (Object[]) selectionArgs);
+        }
+
+        if (afterUid != null) {
+            where.add(sortOrder != null && sortOrder.endsWith("DESC") ? "uid < ?" : "uid > ?");
+            args.add(afterUid);
+        }
+
+        SupportSQLiteQueryBuilder builder = SupportSQLiteQueryBuilder.builder(CONTRACT_TABLE)
+                .columns(checkProjection(projection))
+                .selection(where.isEmpty() ? null : String.join(" AND ", where), args.toArray())
+                .orderBy(checkSortOrder(sortOrder));
+
+        if (limit != null) builder.limit(limit);
+        return builder.create();
+    }
+
+    /** Keyset paging walks the uid index, so it only combines with ordering by uid. */
+    private static String keysetSortOrder(@Nullable String sortOrder) {
+        String order = sortOrder == null ? "" : sortOrder.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+        switch (order) {
+            case "":
+            case "uid":
+            case "uid asc":
+                return "uid ASC";
+            case "uid desc":
+                return "uid DESC";
+            default:
+                throw new IllegalArgumentException("Keyset paging requires ordering by uid: " + sortOrder);
+        }
+    }
+
+    private static String[] checkProjection(@Nullable String[] projection) {
+        if (projection == null || projection.length == 0) return DEFAULT_PROJECTION;
+        for (String column : projection) {
+            if (!COLUMNS.contains(column))
+                throw new IllegalArgumentException("Unknown column in projection: " + column);
+        }
+        return projection;
+    }
+
+    /** Everything a selection may contain besides whitelisted columns, literals and "?". */
+    private static final Set<String> SELECTION_KEYWORDS = new HashSet<>(Arrays.asList(
+            "and", "or", "not", "is", "null", "in", "like", "glob", "between", "escape"));
+
+    /**
+     * Caller selections are pasted into the WHERE clause, so they are tokenized and may only
+     * reference contract columns: no subqueries, functions, comments or statement separators.
+     */
+    private static String checkSelection(String selection) {
+        int i = 0;
+        int n = selection.length();
+        while (i < n) {
+            char c = selection.charAt(i);
+            if (Character.isWhitespace(c) || c == '?' || c == '(' || c == ')' || c == ',') {
+                i++;
+            } else if (c == '\'') {
+                // String literal; '' is an escaped quote.
+                i++;
+                while (true) {
+                    if (i >= n) throw new IllegalArgumentException("Invalid selection: " + selection);
+                    if (selection.charAt(i++) == '\'') {
+                        if (i < n && selection.charAt(i) == '\'') i++;
+                        else break;
+                    }
+                }
+            } else if (Character.isDigit(c)) {
+                while (i < n && (Character.isDigit(selection.charAt(i)) || selection.charAt(i) == '.')) i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(selection.charAt(i)) || selection.charAt(i) == '_')) i++;
+                String word = selection.substring(start, i).toLowerCase(Locale.US);
+                // A column directly followed by "(" would be a function call.
+                int next = i;
+                while (next < n && Character.isWhitespace(selection.charAt(next))) next++;
+                boolean call = next < n && selection.charAt(next) == '(';
+                if (!(COLUMNS.contains(word) && !call) && !SELECTION_KEYWORDS.contains(word))
+                    throw new IllegalArgumentException("Invalid selection: " + selection);
+            } else if ("=<>!+-*/|".indexOf(c) >= 0) {
+                // "--" and "/*" open comments.
+                if (i + 1 < n && ((c == '-' && selection.charAt(i + 1) == '-') || (c == '/' && selection.charAt(i + 1) == '*')))
+                    throw new IllegalArgumentException("Invalid selection: " + selection);
+                i++;
+            } else {
+                throw new IllegalArgumentException("Invalid selection: " + selection);
+            }
+        }
+        return selection;
+    }
+
+    /** Accepts "column [ASC|DESC], ..." over whitelisted columns only. */
+    @Nullable
+    private static String checkSortOrder(@Nullable String sortOrder) {
+        if (sortOrder == null || sortOrder.trim().isEmpty()) return null;
+
+        for (String term : sortOrder.split(",")) {
+            String[] parts = term.trim().split("\\s+");
+            boolean direction = parts.length == 1 ||
+                    (parts.length == 2 && (parts[1].equalsIgnoreCase("ASC") || parts[1].equalsIgnoreCase("DESC")));
+
+            if (!direction || !COLUMNS.contains(parts[0].toLowerCase(Locale.US)))
+                throw new IllegalArgumentException("Invalid sort order: " + sortOrder);
+        }
+        return sortOrder;
+    }
+
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        LocalDate today = LocalDate.now();
+        Bundle result = new Bundle();
+
+        switch (method) {
+            case METHOD_ACTIVE_COUNT:
+                result.putInt(KEY_ACTIVE_COUNT, prescriptionDAO.countActiveOn(today));
+                return result;
+            case METHOD_TAKEN_TODAY_COUNT:
+                result.putInt(KEY_TAKEN_TODAY_COUNT, prescriptionDAO.countReceivedOn(today));
+                return result;
+            case METHOD_TIME_TERM_BREAKDOWN:
+                putTimeTermBreakdown(result, today);
+                return result;
+            case METHOD_STATS:
+                // One read transaction so the numbers agree with each other.
+                db.runInTransaction(() -> {
+                    result.putInt(KEY_ACTIVE_COUNT, prescriptionDAO.countActiveOn(today));
+                    result.putInt(KEY_TAKEN_TODAY_COUNT, prescriptionDAO.countReceivedOn(today));
+                    putTimeTermBreakdown(result, today);
+                });
+                return result;
+            default:
+                return super.call(method, arg, extras);
+        }
+    }
+
+    private void putTimeTermBreakdown(Bundle out, LocalDate today) {
+        List<TimeTermCount> counts = prescriptionDAO.countActiveByTimeTermOn(today);
+        int[] ids    = new int[counts.size()];
+        int[] active = new int[counts.size()];
+        int[] taken  = new int[counts.size()];
+
+        for (int i = 0; i < counts.size(); i++) {
+            TimeTermCount c = counts.get(i);
+            ids[i]    = c.time_term_id;
+            active[i] = c.active;
+            taken[i]  = c.taken;
+        }
+
+        out.putIntArray(KEY_TIME_TERM_IDS, ids);
+        out.putIntArray(KEY_TIME_TERM_ACTIVE, active);
+        out.putIntArray(KEY_TIME_TERM_TAKEN, taken);
+    }
+
     @Nullable
     @Override
     public String getType(@NonNull Uri uri) {
@@ -117,18 +453,9 @@ public class PrescriptionProvider extends ContentProvider {
             throw new IllegalArgumentException("ContentValues must not be null");
         }
 
+        checkDates(values);
         PrescriptionModel entity = PrescriptionModel.fromContentValues(values);
-
-        AtomicReference<Long> idRef = new AtomicReference<>(-1L);
-        CountDownLatch latch = new CountDownLatch(1);
-
-        AppDB.io().execute(() -> {
-            idRef.set(prescriptionDAO.insert(entity));
-            latch.countDown();
-        });
-
-        try { latch.await(); } catch (InterruptedException ignored) {}
-        long id = idRef.get();
+        long id = prescriptionDAO.insert(entity);
 
         if (id == -1) throw new SQLException("Failed to insert row into: " + uri);
 
@@ -137,6 +464,44 @@ public class PrescriptionProvider extends ContentProvider {
         return resultUri;
     }
 
+    /** All rows go in with one Room transaction and one change notification. */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        if (URI_MATCHER.match(uri) != PRESCRIPTIONS) {
+            throw new IllegalArgumentException("Invalid URI for bulkInsert: " + uri);
+        }
+
+        List<PrescriptionModel> entities = new ArrayList<>(values.length);
+        for (ContentValues v : values) {
+            checkDates(v);
+            entities.add(PrescriptionModel.fromContentValues(v));
+        }
+
+        long[] ids = prescriptionDAO.insertAll(entities);
+
+        if (ids.length > 0) notifyChange(CONTENT_URI);
+        return ids.length;
+    }
+
+    /** Runs the whole batch in one Room transaction; observers hear about it only after commit. */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+
+        Set<Uri> batch = new HashSet<>();
+        batchChanges.set(batch);
+        ContentProviderResult[] results;
+        try {
+            results = db.runInTransaction(() -> super.applyBatch(operations));
+        } finally {
+            batchChanges.remove();
+        }
+
+        for (Uri uri : batch) changes.add(uri);
+        return results;
+    }
+
     @Override
     public int update(
             @NonNull Uri uri,
@@ -149,18 +514,13 @@ public class PrescriptionProvider extends ContentProvider {
         }
         if (values == null) return 0;
 
+        checkDates(values);
         int id = (int) ContentUris.parseId(uri);
-        AtomicInteger rows = new AtomicInteger(0);
-        CountDownLatch latch = new CountDownLatch(1);
-
-        AppDB.io().execute(() -> {
-            rows.set(prescriptionDAO.updateFromContentValues(id, values));
-            latch.countDown();
-        });
+        int rows = prescriptionDAO.updateFromContentValues(id, values);
+        repo.evict(id);
 
-        try { latch.await(); } catch (InterruptedException ignored) {}
-        if (rows.get() > 0) notifyChange(uri);
-        return rows.get();
+        if (rows > 0) notifyChange(uri);
+        return rows;
     }
 
     @Override
@@ -174,23 +534,27 @@ public class PrescriptionProvider extends ContentProvider {
         }
 
         int id = (int) ContentUris.parseId(uri);
-        AtomicInteger rows = new AtomicInteger(0);
-        CountDownLatch latch = new CountDownLatch(1);
+        int rows = prescriptionDAO.deleteById(id);
+        repo.evict(id);
 
-        AppDB.io().execute(() -> {
-            rows.set(prescriptionDAO.deleteById(id));
-            latch.countDown();
-        });
+        if (rows > 0) notifyChange(uri);
+        return rows;
+    }
 
-        try { latch.await(); } catch (InterruptedException ignored) {}
-        if (rows.get() > 0) notifyChange(uri);
-        return rows.get();
+    /** DateTimeParseException cannot cross binder, so malformed dates are reported as IllegalArgumentException. */
+    private static void checkDates(ContentValues values) {
+        for (String key : DATE_KEYS) {
+            try {
+                DateCodec.parseIso(values.getAsString(key));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid date for " + key, e);
+            }
+        }
     }
 
     private void notifyChange(@NonNull Uri uri) {
-        Context ctx = getContext();
-        if (ctx != null) {
-            ctx.getContentResolver().notifyChange(uri, null);
-        }
+        Set<Uri> batch = batchChanges.get();
+        if (batch != null) batch.add(uri);
+        else changes.add(uri);
     }
 }
@@ -0,0 +1,124 @@
+package com.example.medicineApp.workers;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.medicineApp.database.AppDB;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single owner of the daily recompute. Remembers the last day it ran for, so the
+ * Dashboard, the periodic worker and the midnight tick trigger at most one run per day.
+ */
+public final class DailyRecomputeCoordinator {
+
+    private static final String PREFS        = "daily_recompute";
+    private static final String KEY_LAST_DAY = "last_epoch_day";
+
+    private static volatile DailyRecomputeCoordinator INSTANCE;
+
+    private final AppDB db;
+    private final SharedPreferences prefs;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable midnightTick = this::onMidnight;
+
+    private final MutableLiveData<LocalDate> today = new MutableLiveData<>(LocalDate.now());
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+    private final Object runLock = new Object();
+
+    private volatile LocalDate lastComputed;
+
+    private DailyRecomputeCoordinator(Context context) {
+        db    = AppDB.get(context);
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+
+        long last = prefs.getLong(KEY_LAST_DAY, Long.MIN_VALUE);
+        lastComputed = last == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(last);
+    }
+
+    public static DailyRecomputeCoordinator get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DailyRecomputeCoordinator.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DailyRecomputeCoordinator(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Current local date, re-emitted once the recompute for a new day has finished. */
+    public LiveData<LocalDate> today() {
+        return today;
+    }
+
+    /** Queues a recompute on the write lane; triggers arriving while one is queued are dropped. */
+    public void ensureAsync() {
+        if (LocalDate.now().equals(lastComputed) || !queued.compareAndSet(false, true)) return;
+
+        AppDB.io(AppDB.Lane.WRITE).execute(() -> {
+            try {
+                ensureSync();
+            } catch (Exception e) {
+                Log.e("DailyRecompute", "Recompute failed", e);
+            } finally {
+                queued.set(false);
+            }
+        });
+    }
+
+    /** Runs the recompute on the calling thread if it has not run for today yet. */
+    public int ensureSync() {
+        synchronized (runLock) {
+            LocalDate day = LocalDate.now();
+            if (day.equals(lastComputed)) {
+                publish(day);
+                return 0;
+            }
+
+            int changed = db.prescriptionDao().dailyRecompute(day);
+            lastComputed = day;
+            prefs.edit().putLong(KEY_LAST_DAY, day.toEpochDay()).apply();
+            publish(day);
+            return changed;
+        }
+    }
+
+    /** Call from onResume: catches up on a missed day and arms the midnight tick. */
+    public void onForeground() {
+        ensureAsync();
+        main.removeCallbacks(midnightTick);
+        main.postDelayed(midnightTick, millisUntilMidnight());
+    }
+
+    /** Call from onPause. */
+    public void onBackground() {
+        main.removeCallbacks(midnightTick);
+    }
+
+    private void onMidnight() {
+        ensureAsync();
+        main.postDelayed(midnightTick, millisUntilMidnight());
+    }
+
+    private void publish(LocalDate day) {
+        if (!day.equals(today.getValue())) today.postValue(day);
+    }
+
+    private static long millisUntilMidnight() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay();
+        // Small margin so the tick never lands a hair before the date flips.
+        return Duration.between(now, midnight).toMillis() + 500;
+    }
+}
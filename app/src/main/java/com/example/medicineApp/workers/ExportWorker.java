@@ -0,0 +1,186 @@
+package com.example.medicineApp.workers;
+
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationChannelCompat;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.work.Data;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.medicineApp.R;
+import com.example.medicineApp.database.repo.PrescriptionRepository;
+import com.example.medicineApp.utilities.ExportRows;
+import com.example.medicineApp.utilities.PrescriptionExport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+
+/**
+ * Streams today's active prescriptions, or in delta mode the rows changed since the last
+ * delta export, into Downloads off the main thread. Reports percent progress, stops between
+ * rows when cancelled and posts a notification that opens the file.
+ */
+public class ExportWorker extends Worker {
+
+    public static final String UNIQUE_NAME  = "rx_export";
+
+    public static final String KEY_FORMAT   = "format";
+    public static final String KEY_GZIP     = "gzip";
+    public static final String KEY_DELTA    = "delta";
+    public static final String KEY_PROGRESS = "progress";
+    public static final String KEY_ROWS     = "rows";
+    public static final String KEY_URI      = "uri";
+    public static final String KEY_ERROR    = "error";
+
+    private static final String PREFS         = "export_watermark";
+    private static final String KEY_WATERMARK = "changed_since";
+
+    private static final String CHANNEL_ID   = "exports";
+    private static final int NOTIFICATION_ID = 1001;
+
+    private int lastPercent = -1;
+
+    public ExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static OneTimeWorkRequest request(PrescriptionExport.Format format, boolean gzip, boolean delta) {
+        return new OneTimeWorkRequest.Builder(ExportWorker.class)
+                .setInputData(new Data.Builder()
+                        .putString(KEY_FORMAT, format.name())
+                        .putBoolean(KEY_GZIP, gzip)
+                        .putBoolean(KEY_DELTA, delta)
+                        .build())
+                .build();
+    }
+
+    @NonNull @Override
+    public Result doWork() {
+        Context ctx = getApplicationContext();
+        PrescriptionExport.Format format = PrescriptionExport.Format.valueOf(getInputData().getString(KEY_FORMAT));
+        boolean gzip = getInputData().getBoolean(KEY_GZIP, false);
+        PrescriptionRepository repo = PrescriptionRepository.get(ctx);
+
+        try {
+            if (getInputData().getBoolean(KEY_DELTA, false)) return exportDelta(ctx, repo, format, gzip);
+
+            try (ExportRows rows = new ExportRows(repo.activePrescriptionsCursor(LocalDate.now()))) {
+                int total = rows.count();
+                if (total == 0) return Result.success(new Data.Builder().putInt(KEY_ROWS, 0).build());
+
+                rows.setListener(this::onRow);
+                Uri uri = PrescriptionExport.export(ctx, rows, format, gzip);
+
+                notifyDone(ctx, uri, PrescriptionExport.mime(format, gzip));
+                return Result.success(new Data.Builder()
+                        .putInt(KEY_ROWS, total)
+                        .putString(KEY_URI, uri.toString())
+                        .build());
+            }
+        } catch (Exception e) {
+            NotificationManagerCompat.from(ctx).cancel(NOTIFICATION_ID);
+            if (isStopped()) return Result.failure();
+
+            Log.e("ExportWorker", "Export failed", e);
+            return Result.failure(new Data.Builder().putString(KEY_ERROR, e.getMessage()).build());
+        }
+    }
+
+    /**
+     * Exports the window [watermark, cutoff) and only then moves the watermark to the cutoff,
+     * so a failed or cancelled run leaves its changes to the next one.
+     */
+    private Result exportDelta(Context ctx, PrescriptionRepository repo, PrescriptionExport.Format format, boolean gzip) throws IOException {
+        SharedPreferences prefs = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        long since = prefs.getLong(KEY_WATERMARK, 0L);
+        long until = repo.changeCutoffSync();
+
+        Data.Builder out = new Data.Builder();
+        try (ExportRows rows = new ExportRows(repo.changedCursor(since, until));
+             Cursor deleted = repo.deletedCursor(since, until)) {
+            int total = rows.count() + deleted.getCount();
+            out.putInt(KEY_ROWS, total);
+
+            if (total > 0) {
+                rows.setListener(this::onRow);
+                Uri uri = PrescriptionExport.exportDelta(ctx, rows, deleted, format, gzip);
+
+                notifyDone(ctx, uri, PrescriptionExport.mime(format, gzip));
+                out.putString(KEY_URI, uri.toString());
+            }
+        }
+
+        prefs.edit().putLong(KEY_WATERMARK, until).commit();
+        // Tombstones behind the watermark can never be exported again.
+        repo.pruneTombstonesSync(until);
+        return Result.success(out.build());
+    }
+
+    private void onRow(int done, int total) throws InterruptedIOException {
+        // The partially written file is deleted by PrescriptionExport when this throws.
+        if (isStopped()) throw new InterruptedIOException("Export cancelled");
+
+        int percent = done * 100 / total;
+        if (percent == lastPercent) return;
+
+        setProgressAsync(new Data.Builder().putInt(KEY_PROGRESS, percent).build());
+        if (lastPercent < 0 || percent / 5 != lastPercent / 5) showProgress(getApplicationContext(), percent);
+        lastPercent = percent;
+    }
+
+    private void showProgress(Context ctx, int percent) {
+        PendingIntent cancel = WorkManager.getInstance(ctx).createCancelPendingIntent(getId());
+
+        post(ctx, new NotificationCompat.Builder(ctx, CHANNEL_ID)
+                .setSmallIcon(R.drawable.download)
+                .setContentTitle("Exporting prescriptions")
+                .setProgress(100, percent, false)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .addAction(0, "Cancel", cancel));
+    }
+
+    private void notifyDone(Context ctx, Uri uri, String mime) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(ctx, CHANNEL_ID)
+                .setSmallIcon(R.drawable.download)
+                .setContentTitle("Prescriptions exported")
+                .setContentText("Saved to Downloads")
+                .setAutoCancel(true);
+
+        // file:// URIs (pre-Q) cannot be handed to other apps.
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            Intent view = new Intent(Intent.ACTION_VIEW)
+                    .setDataAndType(uri, mime)
+                    .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
+            builder.setContentIntent(PendingIntent.getActivity(ctx, 0, view,
+                    PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+        }
+
+        post(ctx, builder);
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void post(Context ctx, NotificationCompat.Builder builder) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(ctx);
+        if (!manager.areNotificationsEnabled()) return;
+
+        manager.createNotificationChannel(new NotificationChannelCompat.Builder(CHANNEL_ID, NotificationManagerCompat.IMPORTANCE_LOW)
+                .setName("Exports")
+                .build());
+        manager.notify(NOTIFICATION_ID, builder.build());
+    }
+}
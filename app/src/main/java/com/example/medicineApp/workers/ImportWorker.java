@@ -0,0 +1,87 @@
+package com.example.medicineApp.workers;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.medicineApp.database.repo.PrescriptionRepository;
+import com.example.medicineApp.utilities.PrescriptionImport;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Runs {@link PrescriptionImport} on a picked document. Progress is published after every
+ * committed batch; cancelling stops before the next batch and keeps what was committed.
+ */
+public class ImportWorker extends Worker {
+
+    public static final String UNIQUE_NAME  = "rx_import";
+
+    public static final String KEY_SOURCE   = "source";
+    public static final String KEY_PROGRESS = "progress";
+    public static final String KEY_IMPORTED = "imported";
+    public static final String KEY_REJECTED = "rejected";
+    public static final String KEY_REPORT   = "report";
+    public static final String KEY_ERROR    = "error";
+
+    public ImportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static OneTimeWorkRequest request(Uri source) {
+        return new OneTimeWorkRequest.Builder(ImportWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_SOURCE, source.toString()).build())
+                .build();
+    }
+
+    @NonNull @Override
+    public Result doWork() {
+        Context ctx = getApplicationContext();
+        Uri source = Uri.parse(getInputData().getString(KEY_SOURCE));
+        PrescriptionRepository repo = PrescriptionRepository.get(ctx);
+
+        try {
+            PrescriptionImport.Result result = PrescriptionImport.run(ctx, source, repo, this::onBatch);
+
+            Data.Builder out = new Data.Builder()
+                    .putInt(KEY_IMPORTED, result.imported)
+                    .putInt(KEY_REJECTED, result.rejected);
+            if (result.report != null) out.putString(KEY_REPORT, result.report.toString());
+            return Result.success(out.build());
+        } catch (Exception e) {
+            if (isStopped()) return Result.failure();
+
+            Log.e("ImportWorker", "Import failed", e);
+            return Result.failure(new Data.Builder().putString(KEY_ERROR, e.getMessage()).build());
+        } finally {
+            releasePermission(ctx, source);
+        }
+    }
+
+    private void onBatch(long bytesRead, long totalBytes, int imported, int rejected) throws InterruptedIOException {
+        if (isStopped()) throw new InterruptedIOException("Import cancelled");
+
+        int percent = totalBytes > 0 ? (int) Math.min(100, bytesRead * 100 / totalBytes) : -1;
+        setProgressAsync(new Data.Builder()
+                .putInt(KEY_PROGRESS, percent)
+                .putInt(KEY_IMPORTED, imported)
+                .putInt(KEY_REJECTED, rejected)
+                .build());
+    }
+
+    /** Dashboard takes a persistable grant so the read survives the activity; hand it back. */
+    private static void releasePermission(Context ctx, Uri source) {
+        try {
+            ctx.getContentResolver().releasePersistableUriPermission(source, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException ignored) {
+            // No persistable grant was taken for this document.
+        }
+    }
+}
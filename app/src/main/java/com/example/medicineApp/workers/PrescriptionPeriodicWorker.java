@@ -6,8 +6,6 @@ import androidx.annotation.NonNull;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
-import com.example.medicineApp.database.AppDB;
-
 public class PrescriptionPeriodicWorker extends Worker {
     public PrescriptionPeriodicWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
@@ -16,16 +14,10 @@ public class PrescriptionPeriodicWorker extends Worker {
     @NonNull @Override
     public Result doWork() {
         try {
-            AppDB db = AppDB.get(getApplicationContext());
-            db.prescriptionDao().dailyRecompute(isoToday());
+            DailyRecomputeCoordinator.get(getApplicationContext()).ensureSync();
             return Result.success();
         } catch (Exception e) {
             return Result.retry();
         }
     }
-
-    private static String isoToday() {
-        java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US);
-        return fmt.format(new java.util.Date());
-    }
 }
\ No newline at end of file